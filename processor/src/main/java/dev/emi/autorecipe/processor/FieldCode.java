@@ -0,0 +1,240 @@
+package dev.emi.autorecipe.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Generated code for reading and writing a single {@code @RecipeVar} field
+ */
+class FieldCode {
+	final int index;
+	final String name;
+	final String path;
+	final boolean required;
+	private final boolean immutable;
+	private final Kind kind;
+	private final String serializerType;
+	private final String classLiteral;
+	private final String primitive;
+	private final String keyFactory;
+
+	private FieldCode(int index, String name, String path, boolean required, boolean immutable, Kind kind, String serializerType,
+			String classLiteral, String primitive, String keyFactory) {
+		this.index = index;
+		this.name = name;
+		this.path = path;
+		this.required = required;
+		this.immutable = immutable;
+		this.kind = kind;
+		this.serializerType = serializerType;
+		this.classLiteral = classLiteral;
+		this.primitive = primitive;
+		this.keyFactory = keyFactory;
+	}
+
+	/**
+	 * @return Code for a field, or null if its type is not supported
+	 */
+	static FieldCode of(RecipeVarProcessor processor, VariableElement field, int index) {
+		AnnotationMirror var = processor.getRecipeVar(field);
+		String path = (String) RecipeVarProcessor.getValue(var, "value", "");
+		boolean required = (Boolean) RecipeVarProcessor.getValue(var, "required", true);
+		boolean immutable = (Boolean) RecipeVarProcessor.getValue(var, "immutable", false);
+		String name = field.getSimpleName().toString();
+		TypeMirror type = field.asType();
+		if (type.getKind().isPrimitive()) {
+			String primitive = type.toString();
+			String boxed = boxed(type.getKind());
+			if (boxed == null) {
+				return null;
+			}
+			boolean fast = type.getKind() == TypeKind.INT || type.getKind() == TypeKind.LONG || type.getKind() == TypeKind.FLOAT
+				|| type.getKind() == TypeKind.DOUBLE;
+			return new FieldCode(index, name, path, required, immutable, fast ? Kind.PRIMITIVE : Kind.BOXED, boxed, primitive + ".class",
+				fast ? primitive : null, null);
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		String erasure = processor.erasure(type);
+		List<? extends TypeMirror> args = ((DeclaredType) type).getTypeArguments();
+		Kind kind;
+		switch (erasure) {
+			case "java.util.List":
+				kind = Kind.LIST;
+				break;
+			case "java.util.Set":
+				kind = Kind.SET;
+				break;
+			case "net.minecraft.util.collection.DefaultedList":
+				kind = Kind.DEFAULTED_LIST;
+				break;
+			case "java.util.Map":
+				kind = Kind.MAP;
+				break;
+			default:
+				// Primitive collections are decoded reflectively
+				if (erasure.startsWith("it.unimi.dsi.fastutil.")) {
+					return null;
+				}
+				return new FieldCode(index, name, path, required, immutable, Kind.VALUE, erasure, erasure + ".class", null, null);
+		}
+		if (kind == Kind.MAP) {
+			if (args.size() != 2) {
+				return null;
+			}
+			String keyFactory = processor.keyFactory(args.get(0));
+			String value = processor.classLiteral(args.get(1));
+			if (keyFactory == null || value == null) {
+				return null;
+			}
+			return new FieldCode(index, name, path, required, immutable, kind, processor.erasure(args.get(1)), value, null, keyFactory);
+		}
+		if (args.size() != 1) {
+			return null;
+		}
+		String element = processor.classLiteral(args.get(0));
+		if (element == null) {
+			return null;
+		}
+		return new FieldCode(index, name, path, required, immutable, kind, processor.erasure(args.get(0)), element, null, null);
+	}
+
+	private static String boxed(TypeKind kind) {
+		switch (kind) {
+			case BOOLEAN: return "Boolean";
+			case BYTE: return "Byte";
+			case SHORT: return "Short";
+			case CHAR: return "Character";
+			case INT: return "Integer";
+			case LONG: return "Long";
+			case FLOAT: return "Float";
+			case DOUBLE: return "Double";
+			default: return null;
+		}
+	}
+
+	private String capitalized() {
+		return Character.toUpperCase(primitive.charAt(0)) + primitive.substring(1);
+	}
+
+	String pathLiteral() {
+		StringBuilder sb = new StringBuilder("{");
+		String[] parts = path.split("/");
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('"');
+			for (char c : parts[i].toCharArray()) {
+				if (c == '"' || c == '\\') {
+					sb.append('\\').append(c);
+				} else if (c < 0x20 || c > 0x7E) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+			sb.append('"');
+		}
+		return sb.append('}').toString();
+	}
+
+	void declare(StringBuilder sb) {
+		sb.append("\tprivate final RecipeVarSerializer<").append(serializerType).append("> s").append(index).append(";\n");
+		if (kind == Kind.PRIMITIVE) {
+			sb.append("\tprivate final RecipeVarSerializer.Of").append(capitalized()).append(" p").append(index).append(";\n");
+		}
+	}
+
+	void init(StringBuilder sb) {
+		sb.append("\t\ts").append(index).append(" = RecipeCodecs.serializer(namespace, ").append(classLiteral).append(");\n");
+		if (kind == Kind.PRIMITIVE) {
+			String of = "RecipeVarSerializer.Of" + capitalized();
+			sb.append("\t\tp").append(index).append(" = s").append(index).append(" instanceof ").append(of).append(" ? (").append(of)
+				.append(") s").append(index).append(" : null;\n");
+		}
+	}
+
+	/**
+	 * @return Code for a decoded collection, wrapped in an unmodifiable copy for immutable fields
+	 */
+	private String finish(String code) {
+		return immutable ? "RecipeCodecs.immutable(" + code + ")" : code;
+	}
+
+	String readJson() {
+		String field = "recipe." + name;
+		String s = "s" + index;
+		switch (kind) {
+			case PRIMITIVE:
+				return field + " = p" + index + " != null ? p" + index + ".readJson" + capitalized() + "(el) : " + s + ".readJson(el);";
+			case LIST:
+				return field + " = " + finish("RecipeCodecs.readList(el, " + s + ")") + ";";
+			case SET:
+				return field + " = " + finish("RecipeCodecs.readSet(el, " + s + ")") + ";";
+			case DEFAULTED_LIST:
+				return field + " = RecipeCodecs.readDefaultedList(el, " + s + ");";
+			case MAP:
+				return field + " = " + finish("RecipeCodecs.readMap(el, " + s + ", " + keyFactory + ")") + ";";
+			case VALUE:
+				return field + " = RecipeInterner.intern(" + s + ".readJson(el));";
+			default:
+				return field + " = " + s + ".readJson(el);";
+		}
+	}
+
+	String readPacket() {
+		String field = "recipe." + name;
+		String s = "s" + index;
+		switch (kind) {
+			case PRIMITIVE:
+				return field + " = p" + index + " != null ? p" + index + ".readPacket" + capitalized() + "(buf) : " + s + ".readPacket(buf);";
+			case LIST:
+				return field + " = " + finish("RecipeCodecs.readList(buf, " + s + ")") + ";";
+			case SET:
+				return field + " = " + finish("RecipeCodecs.readSet(buf, " + s + ")") + ";";
+			case DEFAULTED_LIST:
+				return field + " = RecipeCodecs.readDefaultedList(buf, " + s + ");";
+			case MAP:
+				return field + " = " + finish("RecipeCodecs.readMap(buf, " + s + ", " + keyFactory + ")") + ";";
+			case VALUE:
+				return field + " = RecipeInterner.intern(" + s + ".readPacket(buf));";
+			default:
+				return field + " = " + s + ".readPacket(buf);";
+		}
+	}
+
+	String write() {
+		String field = "recipe." + name;
+		String s = "s" + index;
+		switch (kind) {
+			case PRIMITIVE:
+				return "if (p" + index + " != null) p" + index + ".writePacket" + capitalized() + "(buf, " + field + "); else "
+					+ s + ".writePacket(buf, " + field + ");";
+			case LIST:
+			case SET:
+			case DEFAULTED_LIST:
+				return "RecipeCodecs.writeCollection(buf, " + field + ", " + s + ");";
+			case MAP:
+				return "RecipeCodecs.writeMap(buf, " + field + ", " + s + ");";
+			default:
+				return s + ".writePacket(buf, " + field + ");";
+		}
+	}
+
+	private static enum Kind {
+		VALUE,
+		BOXED,
+		PRIMITIVE,
+		LIST,
+		SET,
+		DEFAULTED_LIST,
+		MAP
+	}
+}
@@ -0,0 +1,241 @@
+package dev.emi.autorecipe.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code <RecipeClass>_AutoRecipeCodec} for each class with {@code @RecipeVar} fields, reading and writing
+ * fields directly instead of through reflection. Classes with fields it cannot access or types it does not
+ * understand are skipped, and fall back to the reflective serializer at runtime.
+ */
+@SupportedAnnotationTypes(RecipeVarProcessor.RECIPE_VAR)
+public class RecipeVarProcessor extends AbstractProcessor {
+	static final String RECIPE_VAR = "dev.emi.autorecipe.RecipeVar";
+	private static final String SUFFIX = "_AutoRecipeCodec";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement annotation = processingEnv.getElementUtils().getTypeElement(RECIPE_VAR);
+		if (annotation == null) {
+			return false;
+		}
+		Map<TypeElement, List<VariableElement>> classes = new LinkedHashMap<>();
+		for (VariableElement field : ElementFilter.fieldsIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+			classes.computeIfAbsent((TypeElement) field.getEnclosingElement(), k -> new ArrayList<>());
+		}
+		for (TypeElement clazz : classes.keySet()) {
+			List<VariableElement> fields = new ArrayList<>();
+			for (VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+				if (getRecipeVar(field) != null) {
+					fields.add(field);
+				}
+			}
+			generate(clazz, fields);
+		}
+		return false;
+	}
+
+	private void generate(TypeElement clazz, List<VariableElement> fields) {
+		String reason = checkAccessible(clazz);
+		List<FieldCode> codes = new ArrayList<>();
+		for (int i = 0; reason == null && i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+				reason = "field " + field.getSimpleName() + " is private, final or static";
+				break;
+			}
+			FieldCode code = FieldCode.of(this, field, i);
+			if (code == null) {
+				reason = "field " + field.getSimpleName() + " has an unsupported type " + field.asType();
+			} else {
+				codes.add(code);
+			}
+		}
+		if (reason != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+				"Not generating a recipe codec for " + clazz.getQualifiedName() + ", " + reason + ", it will use reflection", clazz);
+			return;
+		}
+		String pkg = processingEnv.getElementUtils().getPackageOf(clazz).getQualifiedName().toString();
+		String name = flatName(clazz) + SUFFIX;
+		String type = clazz.getQualifiedName().toString();
+		StringBuilder sb = new StringBuilder();
+		if (!pkg.isEmpty()) {
+			sb.append("package ").append(pkg).append(";\n\n");
+		}
+		sb.append("import com.google.gson.JsonElement;\n");
+		sb.append("import com.google.gson.JsonObject;\n\n");
+		sb.append("import dev.emi.autorecipe.RecipeCodec;\n");
+		sb.append("import dev.emi.autorecipe.RecipeCodecs;\n");
+		sb.append("import dev.emi.autorecipe.RecipeInterner;\n");
+		sb.append("import dev.emi.autorecipe.RecipeVarSerializer;\n");
+		sb.append("import net.minecraft.network.PacketByteBuf;\n");
+		sb.append("import net.minecraft.util.Identifier;\n\n");
+		sb.append("/**\n * Generated by the Auto Recipe annotation processor\n */\n");
+		sb.append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n");
+		sb.append("public final class ").append(name).append(" implements RecipeCodec<").append(type).append("> {\n");
+		for (FieldCode code : codes) {
+			sb.append("\tprivate static final String[] PATH_").append(code.index).append(" = ").append(code.pathLiteral()).append(";\n");
+		}
+		for (FieldCode code : codes) {
+			code.declare(sb);
+		}
+		sb.append("\n\tpublic ").append(name).append("(String namespace) {\n");
+		for (FieldCode code : codes) {
+			code.init(sb);
+		}
+		sb.append("\t}\n");
+		sb.append("\n\t@Override\n\tpublic void readJson(").append(type).append(" recipe, Identifier id, JsonObject json) {\n");
+		sb.append("\t\tJsonElement el;\n");
+		for (FieldCode code : codes) {
+			sb.append("\t\ttry {\n");
+			sb.append("\t\t\tel = RecipeCodecs.find(json, PATH_").append(code.index).append(", ").append(code.required).append(");\n");
+			sb.append("\t\t\tif (el != null) {\n");
+			sb.append("\t\t\t\t").append(code.readJson()).append("\n");
+			sb.append("\t\t\t}\n");
+			sb.append("\t\t} catch (Exception e) {\n");
+			sb.append("\t\t\tthrow RecipeCodecs.malformed(id, \"").append(code.name).append("\", e);\n");
+			sb.append("\t\t}\n");
+		}
+		sb.append("\t}\n");
+		sb.append("\n\t@Override\n\tpublic void readPacket(").append(type).append(" recipe, PacketByteBuf buf) {\n");
+		for (FieldCode code : codes) {
+			appendGuarded(sb, code.readPacket(), "Error parsing packet field " + code.name);
+		}
+		sb.append("\t}\n");
+		sb.append("\n\t@Override\n\tpublic void write(PacketByteBuf buf, ").append(type).append(" recipe) {\n");
+		for (FieldCode code : codes) {
+			appendGuarded(sb, code.write(), "Error writing packet field " + code.name);
+		}
+		sb.append("\t}\n}\n");
+		try (Writer writer = processingEnv.getFiler().createSourceFile((pkg.isEmpty() ? "" : pkg + ".") + name, clazz).openWriter()) {
+			writer.write(sb.toString());
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write recipe codec " + name + ": " + e, clazz);
+		}
+	}
+
+	/**
+	 * Appends a statement whose failures are rethrown naming its field, matching the reflective serializer's errors
+	 */
+	private static void appendGuarded(StringBuilder sb, String statement, String message) {
+		sb.append("\t\ttry {\n");
+		sb.append("\t\t\t").append(statement).append("\n");
+		sb.append("\t\t} catch (Exception e) {\n");
+		sb.append("\t\t\tthrow new RuntimeException(\"").append(message).append("\", e);\n");
+		sb.append("\t\t}\n");
+	}
+
+	private String checkAccessible(TypeElement clazz) {
+		for (Element e = clazz; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			TypeElement type = (TypeElement) e;
+			if (type.getModifiers().contains(Modifier.PRIVATE)) {
+				return "class " + type.getSimpleName() + " is private";
+			}
+			if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+				return "class " + type.getSimpleName() + " is not static";
+			}
+			if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+				return "class " + type.getSimpleName() + " is local";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The class's binary name without its package, with {@code $} replaced by {@code _}, matching the runtime lookup
+	 */
+	private static String flatName(TypeElement clazz) {
+		String name = clazz.getSimpleName().toString();
+		for (Element e = clazz.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+			name = e.getSimpleName() + "_" + name;
+		}
+		return name;
+	}
+
+	AnnotationMirror getRecipeVar(Element element) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(RECIPE_VAR)) {
+				return mirror;
+			}
+		}
+		return null;
+	}
+
+	static Object getValue(AnnotationMirror mirror, String name, Object def) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		return def;
+	}
+
+	/**
+	 * @return The class literal for a type argument, or null if it is not a plain class
+	 */
+	String classLiteral(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED || !((DeclaredType) type).getTypeArguments().isEmpty()) {
+			return null;
+		}
+		return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName() + ".class";
+	}
+
+	/**
+	 * @return A method reference constructing a map key from a string, or null if the key type has no public string constructor
+	 */
+	String keyFactory(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+		String name = element.getQualifiedName().toString();
+		if (name.equals("java.lang.String")) {
+			return "s -> s";
+		}
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+			if (constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().size() == 1
+					&& processingEnv.getTypeUtils().erasure(constructor.getParameters().get(0).asType()).toString().equals("java.lang.String")) {
+				return name + "::new";
+			}
+		}
+		return null;
+	}
+
+	String erasure(TypeMirror type) {
+		TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+		if (erased.getKind() == TypeKind.DECLARED) {
+			return ((TypeElement) ((DeclaredType) erased).asElement()).getQualifiedName().toString();
+		}
+		return erased.toString();
+	}
+}
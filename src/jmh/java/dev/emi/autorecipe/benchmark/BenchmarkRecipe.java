@@ -0,0 +1,84 @@
+package dev.emi.autorecipe.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dev.emi.autorecipe.AutoSerializedRecipe;
+import dev.emi.autorecipe.RecipeVar;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import net.minecraft.block.Block;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.collection.DefaultedList;
+import net.minecraft.world.World;
+
+/**
+ * A synthetic recipe using every built-in variable type, collections, fastutil collections, nested paths and optional
+ * fields
+ */
+public class BenchmarkRecipe extends AutoSerializedRecipe<Inventory> {
+	@RecipeVar("flag")
+	public boolean flag;
+	@RecipeVar("small")
+	public byte small;
+	@RecipeVar("medium")
+	public short medium;
+	@RecipeVar("time")
+	public int time;
+	@RecipeVar("energy")
+	public long energy;
+	@RecipeVar("chance")
+	public float chance;
+	@RecipeVar("experience")
+	public double experience;
+	@RecipeVar("group")
+	public String group;
+	@RecipeVar("sound")
+	public Identifier sound;
+	@RecipeVar("result/item")
+	public ItemStack output;
+	@RecipeVar("input")
+	public Ingredient input;
+	@RecipeVar("block")
+	public Block block;
+	@RecipeVar("catalyst")
+	public Item catalyst;
+	@RecipeVar("extra/inputs")
+	public List<Ingredient> inputs;
+	@RecipeVar("extra/tags")
+	public Set<String> tags;
+	@RecipeVar("extra/outputs")
+	public DefaultedList<ItemStack> outputs;
+	@RecipeVar("extra/weights")
+	public Map<Identifier, Integer> weights;
+	@RecipeVar("extra/stages")
+	public IntList stages;
+	@RecipeVar("extra/bonuses")
+	public Object2IntMap<Identifier> bonuses;
+	@RecipeVar("extra/nested/deep/value")
+	public int deep;
+	@RecipeVar(value = "optional", required = false)
+	public String optional;
+	@RecipeVar(value = "missing/optional", required = false)
+	public int missing;
+
+	@Override
+	public boolean matches(Inventory inv, World world) {
+		return false;
+	}
+
+	@Override
+	public ItemStack craft(Inventory inv) {
+		return output.copy();
+	}
+
+	@Override
+	public ItemStack getOutput() {
+		return output;
+	}
+}
@@ -0,0 +1,50 @@
+package dev.emi.autorecipe.benchmark;
+
+import java.util.List;
+
+import dev.emi.autorecipe.ColumnarRecipe;
+import dev.emi.autorecipe.RecipeColumn;
+import dev.emi.autorecipe.RecipeVar;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.world.World;
+
+/**
+ * A synthetic recipe storing every column type in its arena, with a regular field for a value columns cannot hold
+ */
+public class ColumnarBenchmarkRecipe extends ColumnarRecipe<Inventory> {
+	@RecipeVar("flag")
+	public static final RecipeColumn.OfBoolean FLAG = RecipeColumn.ofBoolean();
+	@RecipeVar("time")
+	public static final RecipeColumn.OfInt TIME = RecipeColumn.ofInt();
+	@RecipeVar("energy")
+	public static final RecipeColumn.OfLong ENERGY = RecipeColumn.ofLong();
+	@RecipeVar("chance")
+	public static final RecipeColumn.OfFloat CHANCE = RecipeColumn.ofFloat();
+	@RecipeVar("experience")
+	public static final RecipeColumn.OfDouble EXPERIENCE = RecipeColumn.ofDouble();
+	@RecipeVar("sound")
+	public static final RecipeColumn.OfIdentifier SOUND = RecipeColumn.ofIdentifier();
+	@RecipeVar("catalyst")
+	public static final RecipeColumn.OfItem CATALYST = RecipeColumn.ofItem();
+	@RecipeVar("result/item")
+	public static final RecipeColumn.OfStack OUTPUT = RecipeColumn.ofStack();
+	@RecipeVar("extra/inputs")
+	public List<Ingredient> inputs;
+
+	@Override
+	public boolean matches(Inventory inv, World world) {
+		return false;
+	}
+
+	@Override
+	public ItemStack craft(Inventory inv) {
+		return OUTPUT.get(this);
+	}
+
+	@Override
+	public ItemStack getOutput() {
+		return OUTPUT.get(this);
+	}
+}
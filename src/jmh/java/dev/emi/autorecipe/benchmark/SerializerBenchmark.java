@@ -0,0 +1,145 @@
+package dev.emi.autorecipe.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.emi.autorecipe.AutoRecipeRegistry;
+import dev.emi.autorecipe.AutoRecipeReloads;
+import dev.emi.autorecipe.AutoRecipeSerializer;
+import io.netty.buffer.Unpooled;
+import net.minecraft.Bootstrap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+/**
+ * Measures json reads, packet reads and packet writes of a recipe using every built-in variable type and of a
+ * columnar recipe using every column type, run with {@code ./gradlew jmh}, which also enables the gc profiler for
+ * allocation rates
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("unchecked")
+public class SerializerBenchmark {
+	private static final Identifier ID = new Identifier("autorecipe", "benchmark");
+	private static final Identifier COLUMNAR_ID = new Identifier("autorecipe", "columnar_benchmark");
+	private static final String JSON = "{"
+		+ "\"flag\": true, \"small\": 3, \"medium\": 300, \"time\": 200, \"energy\": 40000, \"chance\": 0.25,"
+		+ "\"experience\": 1.5, \"group\": \"benchmark\", \"sound\": \"minecraft:block.stone.break\","
+		+ "\"result\": {\"item\": {\"item\": \"minecraft:cobblestone\", \"count\": 2}},"
+		+ "\"input\": {\"item\": \"minecraft:stone\"}, \"block\": \"minecraft:furnace\", \"catalyst\": \"minecraft:blaze_powder\","
+		+ "\"extra\": {"
+		+ "\"inputs\": [{\"item\": \"minecraft:coal\"}, {\"item\": \"minecraft:charcoal\"}],"
+		+ "\"tags\": [\"fast\", \"hot\", \"cheap\"],"
+		+ "\"outputs\": [\"minecraft:gravel\", {\"item\": \"minecraft:flint\", \"count\": 3}],"
+		+ "\"weights\": {\"minecraft:iron_nugget\": 10, \"minecraft:gold_nugget\": 2},"
+		+ "\"stages\": [20, 40, 60],"
+		+ "\"bonuses\": {\"minecraft:coal\": 1, \"minecraft:charcoal\": 2},"
+		+ "\"nested\": {\"deep\": {\"value\": 7}}"
+		+ "},"
+		+ "\"optional\": \"present\""
+		+ "}";
+	private AutoRecipeSerializer<BenchmarkRecipe> serializer;
+	private AutoRecipeSerializer<ColumnarBenchmarkRecipe> columnarSerializer;
+	private JsonObject json;
+	private BenchmarkRecipe recipe;
+	private ColumnarBenchmarkRecipe columnarRecipe;
+	private PacketByteBuf encoded;
+	private PacketByteBuf columnarEncoded;
+	private PacketByteBuf output;
+
+	@Setup
+	public void setup() {
+		serializer = Registration.SERIALIZER;
+		columnarSerializer = Registration.COLUMNAR_SERIALIZER;
+		json = new JsonParser().parse(JSON).getAsJsonObject();
+		recipe = serializer.read(ID, json);
+		columnarRecipe = columnarSerializer.read(COLUMNAR_ID, json);
+		encoded = new PacketByteBuf(Unpooled.buffer());
+		serializer.write(encoded, recipe);
+		columnarEncoded = new PacketByteBuf(Unpooled.buffer());
+		columnarSerializer.write(columnarEncoded, columnarRecipe);
+		output = new PacketByteBuf(Unpooled.buffer());
+	}
+
+	/**
+	 * Starts a new arena generation per iteration as a reload would, so columnar reads do not grow one arena forever
+	 */
+	@Setup(Level.Iteration)
+	public void beginIteration() {
+		AutoRecipeReloads.begin();
+	}
+
+	@TearDown(Level.Iteration)
+	public void endIteration() {
+		AutoRecipeReloads.end();
+	}
+
+	@Benchmark
+	public BenchmarkRecipe readJson() {
+		return serializer.read(ID, json);
+	}
+
+	@Benchmark
+	public BenchmarkRecipe readPacket() {
+		encoded.readerIndex(0);
+		return serializer.read(ID, encoded);
+	}
+
+	@Benchmark
+	public PacketByteBuf write() {
+		output.clear();
+		serializer.write(output, recipe);
+		return output;
+	}
+
+	@Benchmark
+	public ColumnarBenchmarkRecipe readColumnarJson() {
+		return columnarSerializer.read(COLUMNAR_ID, json);
+	}
+
+	@Benchmark
+	public ColumnarBenchmarkRecipe readColumnarPacket() {
+		columnarEncoded.readerIndex(0);
+		return columnarSerializer.read(COLUMNAR_ID, columnarEncoded);
+	}
+
+	@Benchmark
+	public PacketByteBuf writeColumnar() {
+		output.clear();
+		columnarSerializer.write(output, columnarRecipe);
+		return output;
+	}
+
+	private static class Registration {
+		private static final AutoRecipeSerializer<BenchmarkRecipe> SERIALIZER;
+		private static final AutoRecipeSerializer<ColumnarBenchmarkRecipe> COLUMNAR_SERIALIZER;
+
+		static {
+			Bootstrap.initialize();
+			AutoRecipeRegistry.registerRecipeSerializer(ID, BenchmarkRecipe::new);
+			AutoRecipeRegistry.registerRecipeSerializer(COLUMNAR_ID, ColumnarBenchmarkRecipe::new);
+			SERIALIZER = (AutoRecipeSerializer<BenchmarkRecipe>) AutoRecipeRegistry.getRecipeSerializer(BenchmarkRecipe.class);
+			COLUMNAR_SERIALIZER = (AutoRecipeSerializer<ColumnarBenchmarkRecipe>) AutoRecipeRegistry
+				.getRecipeSerializer(ColumnarBenchmarkRecipe.class);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package dev.emi.autorecipe;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.recipe.Recipe;
+
+/**
+ * An optional mode for the recipe sync packet where each auto serialized recipe is written with its length, letting
+ * the client copy its bytes out and decode and compile it on a worker pool while the rest of the packet is read.
+ * It is enabled on the server, and the packet records whether recipes are framed, so clients follow the server's
+ * setting. Decoded recipes are only handed to the recipe manager once all of them are done, and any code reaching a recipe
+ * earlier through {@link AutoSerializedRecipe#ensureLoaded} waits for it or decodes it itself.
+ */
+public final class AsyncRecipeDecoding {
+	private static final Logger LOG = LogManager.getLogger("autorecipe");
+	private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+	private static volatile boolean enabled;
+	private static volatile Executor executor = ForkJoinPool.commonPool();
+
+	private AsyncRecipeDecoding() {
+	}
+
+	public static void setEnabled(boolean enabled) {
+		AsyncRecipeDecoding.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets the pool recipes are decoded on, the common pool by default
+	 */
+	public static void setExecutor(Executor executor) {
+		AsyncRecipeDecoding.executor = executor;
+	}
+
+	/**
+	 * Starts framing recipes for the sync packet being read or written on this thread if the packet frames them,
+	 * called by the packet hooks with the mode the packet was written in
+	 */
+	static void begin(boolean active) {
+		if (active) {
+			ACTIVE.set(Boolean.TRUE);
+		} else {
+			ACTIVE.remove();
+		}
+	}
+
+	public static void end() {
+		ACTIVE.remove();
+	}
+
+	static boolean isActive() {
+		return ACTIVE.get() != null;
+	}
+
+	static void submit(AutoSerializedRecipe<?> recipe) {
+		executor.execute(() -> {
+			try {
+				recipe.ensureLoaded();
+			} catch (RuntimeException e) {
+				// The load stays pending, so the error is thrown again to whoever awaits the recipe
+				LOG.error("Error decoding synced recipe " + recipe.getId(), e);
+			}
+		});
+	}
+
+	/**
+	 * Blocks until every recipe decoded in the background has finished, decoding any that have not started on this
+	 * thread, called by the recipe manager mixin before recipes are published. Lazy recipes are left pending.
+	 *
+	 * @throws RuntimeException If any recipe failed to decode, after every recipe has been awaited
+	 */
+	public static void await(Iterable<? extends Recipe<?>> recipes) {
+		RuntimeException failure = null;
+		int failed = 0;
+		for (Recipe<?> recipe : recipes) {
+			if (recipe instanceof AutoSerializedRecipe && ((AutoSerializedRecipe<?>) recipe).pendingLoad != null) {
+				AutoRecipeSerializer<?> serializer = AutoRecipeRegistry.getRecipeSerializer(recipe.getClass());
+				if (serializer != null && !serializer.isLazy()) {
+					try {
+						((AutoSerializedRecipe<?>) recipe).ensureLoaded();
+					} catch (RuntimeException e) {
+						RuntimeException wrapped = new RuntimeException("Error decoding synced recipe " + recipe.getId(), e);
+						failed++;
+						if (failure == null) {
+							failure = wrapped;
+						} else {
+							failure.addSuppressed(wrapped);
+						}
+					}
+				}
+			}
+		}
+		if (failure != null) {
+			throw new RuntimeException("Failed to decode " + failed + " synced recipes", failure);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package dev.emi.autorecipe;
+
+import java.util.List;
+
+import com.mojang.brigadier.CommandDispatcher;
+
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.LiteralText;
+
+/**
+ * The {@code /autorecipe} diagnostics command, registered by the command manager mixin and not intended for use by mods
+ */
+public final class AutoRecipeCommands {
+
+	private AutoRecipeCommands() {
+	}
+
+	public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+		dispatcher.register(CommandManager.literal("autorecipe")
+			.requires(source -> source.hasPermissionLevel(2))
+			.then(CommandManager.literal("footprint").executes(context -> {
+				ServerCommandSource source = context.getSource();
+				List<RecipeFootprint.TypeFootprint> types = RecipeFootprint.measure(source.getMinecraftServer().getRecipeManager().values());
+				if (types.isEmpty()) {
+					source.sendFeedback(new LiteralText("No auto serialized recipes are loaded"), false);
+				}
+				for (String line : RecipeFootprint.format(types)) {
+					source.sendFeedback(new LiteralText(line), false);
+				}
+				return types.size();
+			})));
+	}
+}
@@ -0,0 +1,226 @@
+package dev.emi.autorecipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.util.Identifier;
+
+/**
+ * Opt-in timing, size and failure metrics for auto serialized recipes, broken down per recipe type and per field.
+ * Metrics are reset at the start of each reload and a summary is logged at its end.
+ * When disabled, serializers only pay for a single volatile read per call.
+ */
+public final class AutoRecipeMetrics {
+	private static final Logger LOG = LogManager.getLogger("autorecipe");
+	private static final int SLOWEST_RECIPES = 10;
+	private static final Map<Identifier, Map<Operation, Stats>> RECIPE_STATS = new ConcurrentHashMap<>();
+	private static final Map<String, Map<Operation, Stats>> FIELD_STATS = new ConcurrentHashMap<>();
+	private static final PriorityQueue<SlowRecipe> SLOWEST = new PriorityQueue<>(Comparator.comparingLong(SlowRecipe::getNanos));
+	private static volatile boolean enabled;
+	private static volatile long slowestThreshold;
+
+	private AutoRecipeMetrics() {
+	}
+
+	public static void setEnabled(boolean enabled) {
+		AutoRecipeMetrics.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return Stats for a recipe type, by its serializer id, or null if it has not been used
+	 */
+	public static Stats getRecipeStats(Identifier type, Operation operation) {
+		Map<Operation, Stats> map = RECIPE_STATS.get(type);
+		return map == null ? null : map.get(operation);
+	}
+
+	/**
+	 * @return Stats for a field, by its recipe type and name such as {@code mymod:test#input}, or null if it has not been used
+	 */
+	public static Stats getFieldStats(String field, Operation operation) {
+		Map<Operation, Stats> map = FIELD_STATS.get(field);
+		return map == null ? null : map.get(operation);
+	}
+
+	public static Map<Identifier, Map<Operation, Stats>> getRecipeStats() {
+		return Collections.unmodifiableMap(RECIPE_STATS);
+	}
+
+	public static Map<String, Map<Operation, Stats>> getFieldStats() {
+		return Collections.unmodifiableMap(FIELD_STATS);
+	}
+
+	/**
+	 * @return The slowest recipes read from json since the last reset, slowest first
+	 */
+	public static List<SlowRecipe> getSlowestRecipes() {
+		List<SlowRecipe> list;
+		synchronized (SLOWEST) {
+			list = new ArrayList<>(SLOWEST);
+		}
+		list.sort(Comparator.comparingLong(SlowRecipe::getNanos).reversed());
+		return list;
+	}
+
+	public static void reset() {
+		RECIPE_STATS.clear();
+		FIELD_STATS.clear();
+		synchronized (SLOWEST) {
+			SLOWEST.clear();
+			slowestThreshold = 0;
+		}
+	}
+
+	public static void logSummary() {
+		if (RECIPE_STATS.isEmpty()) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder("Auto recipe metrics:");
+		RECIPE_STATS.forEach((type, map) -> map.forEach((operation, stats) -> sb.append("\n  ").append(type).append(' ')
+			.append(operation).append(": ").append(stats)));
+		for (SlowRecipe recipe : getSlowestRecipes()) {
+			sb.append("\n  slow recipe ").append(recipe.getId()).append(": ").append(recipe.getNanos() / 1000).append("us");
+		}
+		LOG.info(sb.toString());
+	}
+
+	static void recordRecipe(Identifier type, Operation operation, Identifier id, long nanos, int bytes) {
+		stats(RECIPE_STATS, type, operation).record(nanos, bytes);
+		if (operation == Operation.JSON_READ && nanos > slowestThreshold) {
+			synchronized (SLOWEST) {
+				SLOWEST.add(new SlowRecipe(id, nanos));
+				if (SLOWEST.size() > SLOWEST_RECIPES) {
+					SLOWEST.poll();
+				}
+				if (SLOWEST.size() == SLOWEST_RECIPES) {
+					slowestThreshold = SLOWEST.peek().getNanos();
+				}
+			}
+		}
+	}
+
+	static void recordRecipeFailure(Identifier type, Operation operation) {
+		stats(RECIPE_STATS, type, operation).failures.increment();
+	}
+
+	static void recordField(String field, Operation operation, long nanos, int bytes) {
+		stats(FIELD_STATS, field, operation).record(nanos, bytes);
+	}
+
+	static void recordFieldFailure(String field, Operation operation) {
+		stats(FIELD_STATS, field, operation).failures.increment();
+	}
+
+	private static <K> Stats stats(Map<K, Map<Operation, Stats>> map, K key, Operation operation) {
+		Map<Operation, Stats> ops = map.get(key);
+		if (ops == null) {
+			ops = map.computeIfAbsent(key, k -> {
+				Map<Operation, Stats> m = new EnumMap<>(Operation.class);
+				for (Operation op : Operation.values()) {
+					m.put(op, new Stats());
+				}
+				return m;
+			});
+		}
+		return ops.get(operation);
+	}
+
+	public static enum Operation {
+		JSON_READ,
+		PACKET_READ,
+		PACKET_WRITE
+	}
+
+	public static class Stats {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final AtomicLongArray buckets = new AtomicLongArray(65);
+
+		private void record(long nanos, int bytes) {
+			this.count.increment();
+			this.nanos.add(nanos);
+			this.bytes.add(bytes);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getTotalNanos() {
+			return nanos.sum();
+		}
+
+		/**
+		 * @return Bytes read from or written to packet buffers, always 0 for json reads
+		 */
+		public long getBytes() {
+			return bytes.sum();
+		}
+
+		public long getFailures() {
+			return failures.sum();
+		}
+
+		/**
+		 * @return An upper bound for the given percentile (from 0 to 1) of call durations, accurate to a power of 2
+		 */
+		public long getPercentileNanos(double percentile) {
+			long total = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				total += buckets.get(i);
+			}
+			long rank = (long) Math.ceil(total * percentile);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= rank && seen > 0) {
+					return i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			long count = getCount();
+			return count + " calls, " + getTotalNanos() / 1000000 + "ms total, p50 " + getPercentileNanos(0.5) / 1000 + "us, p99 "
+				+ getPercentileNanos(0.99) / 1000 + "us, " + getBytes() + " bytes, " + getFailures() + " failures";
+		}
+	}
+
+	public static class SlowRecipe {
+		private final Identifier id;
+		private final long nanos;
+
+		private SlowRecipe(Identifier id, long nanos) {
+			this.id = id;
+			this.nanos = nanos;
+		}
+
+		public Identifier getId() {
+			return id;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+	}
+}
@@ -1,10 +1,17 @@
 package dev.emi.autorecipe;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -12,25 +19,32 @@ import com.google.gson.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import dev.emi.autorecipe.mixin.IngredientAccessor;
+import io.netty.buffer.Unpooled;
 import net.minecraft.block.Block;
 import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.recipe.Ingredient;
 import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
 import net.minecraft.recipe.RecipeType;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.util.registry.Registry;
+import net.minecraft.world.World;
 
 @SuppressWarnings("unchecked")
 public class AutoRecipeRegistry {
 	private static final Logger LOG = LogManager.getLogger("autorecipe");
 	private static final Identifier AUTO_CLASS = new Identifier("auto", "class");
-	private static final Map<Class<? extends Recipe<?>>, AutoRecipeSerializer<?>> RECIPE_SERIALIZERS = new HashMap<>();
-	private static final Map<Class<? extends Recipe<?>>, RecipeType<?>> RECIPE_TYPES = new HashMap<>();
-	private static final Map<Class<?>, RecipeVarSerializer<?>> VAR_SERIALIZERS = new HashMap<>();
-	private static final Map<String, Map<Class<?>, RecipeVarSerializer<?>>> SCOPED_VAR_SERIALIZERS = new HashMap<>();
+	private static final Map<Class<? extends Recipe<?>>, AutoRecipeSerializer<?>> RECIPE_SERIALIZERS = new ConcurrentHashMap<>();
+	private static final Map<Class<? extends Recipe<?>>, RecipeType<?>> RECIPE_TYPES = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, RecipeVarSerializer<?>> VAR_SERIALIZERS = new ConcurrentHashMap<>();
+	private static final Map<String, Map<Class<?>, RecipeVarSerializer<?>>> SCOPED_VAR_SERIALIZERS = new ConcurrentHashMap<>();
+	private static volatile SerializerLookup frozenGlobalLookup;
+	private static volatile Map<String, SerializerLookup> frozenLookups;
 
 	/**
 	 * Creates and registers a recipe type and serializer based on the provided supplier of
@@ -52,7 +66,7 @@ public class AutoRecipeRegistry {
 	public static <V extends Inventory, T extends Recipe<V>> RecipeType<T> registerRecipeSerializer(Identifier id,
 			Function<Identifier, T> function) {
 		Class<T> clazz = (Class<T>) function.apply(AUTO_CLASS).getClass();
-		AutoRecipeSerializer<T> serializer = new AutoRecipeSerializer<>(function, clazz, id);
+		AutoRecipeSerializer<T> serializer = new AutoRecipeSerializer<>(function, clazz, id, findGeneratedCodec(clazz));
 		RECIPE_SERIALIZERS.put(clazz, serializer);
 		RecipeType<T> type = new RecipeType<T>() {
 			public String toString() {
@@ -66,10 +80,28 @@ public class AutoRecipeRegistry {
 	}
 
 	/**
-	 * Registers a recipe variable serializer for a given class in a given namespace
+	 * @return The codec generated for a recipe class by the annotation processor, or null if there is none
+	 */
+	private static Class<?> findGeneratedCodec(Class<?> clazz) {
+		String name = clazz.getName();
+		int dot = name.lastIndexOf('.');
+		String codecName = name.substring(0, dot + 1) + name.substring(dot + 1).replace('$', '_') + "_AutoRecipeCodec";
+		try {
+			Class<?> codec = Class.forName(codecName, false, clazz.getClassLoader());
+			return RecipeCodec.class.isAssignableFrom(codec) ? codec : null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Registers a recipe variable serializer for a given class in a given namespace.
+	 * Serializers for primitive classes can implement {@link RecipeVarSerializer.OfInt} and its siblings
+	 * to be used without boxing on primitive fields
 	 */
 	public static <T> void registerVariableSerializer(String namespace, Class<T> clazz, RecipeVarSerializer<T> serializer) {
-		Map<Class<?>, RecipeVarSerializer<?>> map = SCOPED_VAR_SERIALIZERS.computeIfAbsent(namespace, a -> new HashMap<>());
+		checkNotFrozen(clazz);
+		Map<Class<?>, RecipeVarSerializer<?>> map = SCOPED_VAR_SERIALIZERS.computeIfAbsent(namespace, a -> new ConcurrentHashMap<>());
 		if (map.containsKey(clazz)) {
 			LOG.warn("Variable serializer registered over existing serializer for class " + clazz.getTypeName());
 		}
@@ -77,29 +109,103 @@ public class AutoRecipeRegistry {
 	}
 
 	public static <T> void registerGlobalVariableSerializer(Class<T> clazz, RecipeVarSerializer<T> serializer) {
+		checkNotFrozen(clazz);
 		if (VAR_SERIALIZERS.containsKey(clazz)) {
 			LOG.warn("Global variable serializer registered over existing serializer for class " + clazz.getTypeName());
 		}
 		VAR_SERIALIZERS.put(clazz, serializer);
 	}
 
+	/**
+	 * Flattens the registered variable serializers into immutable per namespace tables, after which lookups
+	 * are lock-free and memoized, and further variable serializer registration is rejected.
+	 * Called automatically when the first recipe is read, but can be called earlier once all mods are initialized
+	 */
+	public static synchronized void freeze() {
+		if (frozenLookups != null) {
+			return;
+		}
+		frozenGlobalLookup = new SerializerLookup(new IdentityHashMap<>(VAR_SERIALIZERS));
+		Map<String, SerializerLookup> lookups = new HashMap<>();
+		for (Map.Entry<String, Map<Class<?>, RecipeVarSerializer<?>>> entry : SCOPED_VAR_SERIALIZERS.entrySet()) {
+			Map<Class<?>, RecipeVarSerializer<?>> flattened = new IdentityHashMap<>(VAR_SERIALIZERS);
+			flattened.putAll(entry.getValue());
+			lookups.put(entry.getKey(), new SerializerLookup(flattened));
+		}
+		frozenLookups = Collections.unmodifiableMap(lookups);
+	}
+
+	public static boolean isFrozen() {
+		return frozenLookups != null;
+	}
+
+	private static void checkNotFrozen(Class<?> clazz) {
+		if (frozenLookups != null) {
+			throw new IllegalStateException("Variable serializer for class " + clazz.getTypeName()
+				+ " registered after the registry was frozen, serializers must be registered during mod initialization");
+		}
+	}
+
 	public static AutoRecipeSerializer<? extends Recipe<?>> getRecipeSerializer(Class<?> clazz) {
 		return RECIPE_SERIALIZERS.get(clazz);
 	}
 
+	static Collection<AutoRecipeSerializer<?>> getRecipeSerializers() {
+		return RECIPE_SERIALIZERS.values();
+	}
+
+	/**
+	 * Finds the variable serializer for a class in a namespace, falling back to global serializers,
+	 * and then to serializers registered for the class's superclasses and interfaces
+	 */
 	public static RecipeVarSerializer<?> getVariableSerializer(String namespace, Class<?> clazz) {
-		if (SCOPED_VAR_SERIALIZERS.containsKey(namespace)) {
-			Map<Class<?>, RecipeVarSerializer<?>> map = SCOPED_VAR_SERIALIZERS.get(namespace);
-			if (map.containsKey(clazz)) {
-				return map.get(clazz);
-			}
+		Map<String, SerializerLookup> lookups = frozenLookups;
+		if (lookups != null) {
+			return lookups.getOrDefault(namespace, frozenGlobalLookup).get(clazz);
 		}
-		return VAR_SERIALIZERS.get(clazz);
+		Map<Class<?>, RecipeVarSerializer<?>> scoped = SCOPED_VAR_SERIALIZERS.get(namespace);
+		return SerializerLookup.resolve(c -> {
+			RecipeVarSerializer<?> serializer = scoped == null ? null : scoped.get(c);
+			return serializer != null ? serializer : VAR_SERIALIZERS.get(c);
+		}, clazz);
 	}
 
 	public static RecipeType<?> getRecipeType(Class<?> clazz) {
 		return RECIPE_TYPES.get(clazz);
 	}
+
+	/**
+	 * @return Recipes of a type that could involve an item through one of their {@code key} fields, in recipe manager order
+	 */
+	public static <C extends Inventory, T extends Recipe<C>> List<T> getRecipesFor(RecipeManager manager, RecipeType<T> type,
+			Item item) {
+		return RecipeIndex.get(manager, type).getRecipes(item);
+	}
+
+	/**
+	 * @return Recipes of a type that could involve a block through one of their {@code key} fields, in recipe manager order
+	 */
+	public static <C extends Inventory, T extends Recipe<C>> List<T> getRecipesFor(RecipeManager manager, RecipeType<T> type,
+			Block block) {
+		return RecipeIndex.get(manager, type).getRecipes(block);
+	}
+
+	/**
+	 * An indexed equivalent to {@code RecipeManager.getFirstMatch}, only testing recipes whose {@code key} fields
+	 * contain an item in the inventory
+	 */
+	public static <C extends Inventory, T extends Recipe<C>> Optional<T> getFirstMatch(RecipeManager manager, RecipeType<T> type,
+			C inventory, World world) {
+		return Optional.ofNullable(RecipeIndex.get(manager, type).getFirstMatch(inventory, world));
+	}
+
+	/**
+	 * Enables remembering the last recipe matched for each combination of items in an inventory, which is checked
+	 * before the index. When several recipes match the same items, this may return a different one than the manager
+	 */
+	public static void setMatchCacheEnabled(boolean enabled) {
+		RecipeIndex.matchCacheEnabled = enabled;
+	}
 	
 	private static <T> RecipeVarSerializer<T> newSerializer(Function<JsonElement, T> readJsonFunction,
 			Function<PacketByteBuf, T> readPacketFunction, BiConsumer<PacketByteBuf, T> writePacketConsumer) {
@@ -117,58 +223,163 @@ public class AutoRecipeRegistry {
 		};
 	}
 
+	private static <T> RecipeVarSerializer<T> newSerializer(Function<JsonElement, T> readJsonFunction,
+			Function<PacketByteBuf, T> readPacketFunction, BiConsumer<PacketByteBuf, T> writePacketConsumer,
+			ToIntFunction<T> sizeOfFunction) {
+		return new RecipeVarSerializer<T>() {
+			public T readJson(JsonElement element) {
+				return readJsonFunction.apply(element);
+			}
+			public T readPacket(PacketByteBuf buf) {
+				return readPacketFunction.apply(buf);
+			}
+			public void writePacket(PacketByteBuf buf, T value) {
+				writePacketConsumer.accept(buf, value);
+			}
+			public int sizeOf(T value) {
+				return sizeOfFunction.applyAsInt(value);
+			}
+		};
+	}
+
+	private static int sizeOfItemStack(ItemStack stack) {
+		if (stack.isEmpty()) {
+			return 1;
+		}
+		Item item = stack.getItem();
+		if ((item.isDamageable() || item.shouldSyncTagToClient()) && stack.getTag() != null) {
+			// Nbt has no cheap size, so it is measured
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			buf.writeItemStack(stack);
+			return buf.readableBytes();
+		}
+		// Present flag, raw item id, count and an empty tag
+		return 1 + PacketByteBuf.getVarIntSizeBytes(Item.getRawId(item)) + 1 + 1;
+	}
+
+	/**
+	 * Ingredients are written as their resolved stacks
+	 */
+	static int sizeOfIngredient(Ingredient ingredient) {
+		ItemStack[] stacks = getMatchingStacks(ingredient);
+		if (stacks == null) {
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			ingredient.write(buf);
+			return buf.readableBytes();
+		}
+		int size = PacketByteBuf.getVarIntSizeBytes(stacks.length);
+		for (ItemStack stack : stacks) {
+			size += sizeOfItemStack(stack);
+		}
+		return size;
+	}
+
+	/**
+	 * @return The stacks an ingredient resolves to, which must not be modified, or null outside of a mixin environment
+	 * such as the load profiler
+	 */
+	static ItemStack[] getMatchingStacks(Ingredient ingredient) {
+		if (!((Object) ingredient instanceof IngredientAccessor)) {
+			return null;
+		}
+		IngredientAccessor accessor = (IngredientAccessor) (Object) ingredient;
+		accessor.autorecipe$cacheMatchingStacks();
+		return accessor.autorecipe$getMatchingStacks();
+	}
+
 	static {
 		AutoRecipeRegistry.registerGlobalVariableSerializer(boolean.class, newSerializer(
 			element -> element.getAsBoolean(),
 			buf -> buf.readBoolean(),
-			(buf, value) -> buf.writeBoolean(value)
+			(buf, value) -> buf.writeBoolean(value),
+			value -> 1
 		));
 		VAR_SERIALIZERS.put(Boolean.class, VAR_SERIALIZERS.get(boolean.class));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(byte.class, newSerializer(
 			element -> element.getAsByte(),
 			buf -> buf.readByte(),
-			(buf, value) -> buf.writeByte(value)
+			(buf, value) -> buf.writeByte(value),
+			value -> 1
 		));
 		VAR_SERIALIZERS.put(Byte.class, VAR_SERIALIZERS.get(byte.class));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(short.class, newSerializer(
 			element -> element.getAsShort(),
 			buf -> buf.readShort(),
-			(buf, value) -> buf.writeShort(value)
+			(buf, value) -> buf.writeShort(value),
+			value -> 2
 		));
 		VAR_SERIALIZERS.put(Short.class, VAR_SERIALIZERS.get(short.class));
-		AutoRecipeRegistry.registerGlobalVariableSerializer(int.class, newSerializer(
-			element -> element.getAsInt(),
-			buf -> buf.readInt(),
-			(buf, value) -> buf.writeInt(value)
-		));
+		AutoRecipeRegistry.registerGlobalVariableSerializer(int.class, new RecipeVarSerializer.OfInt() {
+			public int readJsonInt(JsonElement element) {
+				return element.getAsInt();
+			}
+			public int readPacketInt(PacketByteBuf buf) {
+				return buf.readInt();
+			}
+			public void writePacketInt(PacketByteBuf buf, int value) {
+				buf.writeInt(value);
+			}
+			public int sizeOfInt(int value) {
+				return 4;
+			}
+		});
 		VAR_SERIALIZERS.put(Integer.class, VAR_SERIALIZERS.get(int.class));
-		AutoRecipeRegistry.registerGlobalVariableSerializer(long.class, newSerializer(
-			element -> element.getAsLong(),
-			buf -> buf.readLong(),
-			(buf, value) -> buf.writeLong(value)
-		));
+		AutoRecipeRegistry.registerGlobalVariableSerializer(long.class, new RecipeVarSerializer.OfLong() {
+			public long readJsonLong(JsonElement element) {
+				return element.getAsLong();
+			}
+			public long readPacketLong(PacketByteBuf buf) {
+				return buf.readLong();
+			}
+			public void writePacketLong(PacketByteBuf buf, long value) {
+				buf.writeLong(value);
+			}
+			public int sizeOfLong(long value) {
+				return 8;
+			}
+		});
 		VAR_SERIALIZERS.put(Long.class, VAR_SERIALIZERS.get(long.class));
-		AutoRecipeRegistry.registerGlobalVariableSerializer(float.class, newSerializer(
-			element -> element.getAsFloat(),
-			buf -> buf.readFloat(),
-			(buf, value) -> buf.writeFloat(value)
-		));
+		AutoRecipeRegistry.registerGlobalVariableSerializer(float.class, new RecipeVarSerializer.OfFloat() {
+			public float readJsonFloat(JsonElement element) {
+				return element.getAsFloat();
+			}
+			public float readPacketFloat(PacketByteBuf buf) {
+				return buf.readFloat();
+			}
+			public void writePacketFloat(PacketByteBuf buf, float value) {
+				buf.writeFloat(value);
+			}
+			public int sizeOfFloat(float value) {
+				return 4;
+			}
+		});
 		VAR_SERIALIZERS.put(Float.class, VAR_SERIALIZERS.get(float.class));
-		AutoRecipeRegistry.registerGlobalVariableSerializer(double.class, newSerializer(
-			element -> element.getAsDouble(),
-			buf -> buf.readDouble(),
-			(buf, value) -> buf.writeDouble(value)
-		));
+		AutoRecipeRegistry.registerGlobalVariableSerializer(double.class, new RecipeVarSerializer.OfDouble() {
+			public double readJsonDouble(JsonElement element) {
+				return element.getAsDouble();
+			}
+			public double readPacketDouble(PacketByteBuf buf) {
+				return buf.readDouble();
+			}
+			public void writePacketDouble(PacketByteBuf buf, double value) {
+				buf.writeDouble(value);
+			}
+			public int sizeOfDouble(double value) {
+				return 8;
+			}
+		});
 		VAR_SERIALIZERS.put(Double.class, VAR_SERIALIZERS.get(double.class));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(String.class, newSerializer(
 			element -> element.getAsString(),
-			buf -> buf.readString(),
-			(buf, value) -> buf.writeString(value)
+			buf -> RecipeStringTable.readString(buf),
+			(buf, value) -> RecipeStringTable.writeString(buf, value),
+			value -> RecipeStringTable.sizeOfString(value)
 		));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(Identifier.class, newSerializer(
 			element -> new Identifier(element.getAsString()),
-			buf -> buf.readIdentifier(),
-			(buf, value) -> buf.writeIdentifier(value)
+			buf -> RecipeStringTable.readIdentifier(buf),
+			(buf, value) -> RecipeStringTable.writeIdentifier(buf, value),
+			value -> RecipeStringTable.sizeOfIdentifier(value)
 		));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(ItemStack.class, newSerializer(
 			element -> {
@@ -183,17 +394,26 @@ public class AutoRecipeRegistry {
 				}
 			},
 			buf -> buf.readItemStack(),
-			(buf, value) -> buf.writeItemStack(value)
+			(buf, value) -> buf.writeItemStack(value),
+			value -> sizeOfItemStack(value)
 		));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(Ingredient.class, newSerializer(
 			element -> Ingredient.fromJson(element),
 			buf -> Ingredient.fromPacket(buf),
-			(buf, value) -> value.write(buf)
+			(buf, value) -> value.write(buf),
+			value -> sizeOfIngredient(value)
+		));
+		AutoRecipeRegistry.registerGlobalVariableSerializer(Item.class, newSerializer(
+			element -> Registry.ITEM.get(new Identifier(element.getAsString())),
+			buf -> Registry.ITEM.get(RecipeStringTable.readIdentifier(buf)),
+			(buf, value) -> RecipeStringTable.writeIdentifier(buf, Registry.ITEM.getId(value)),
+			value -> RecipeStringTable.sizeOfIdentifier(Registry.ITEM.getId(value))
 		));
 		AutoRecipeRegistry.registerGlobalVariableSerializer(Block.class, newSerializer(
 			element -> Registry.BLOCK.get(new Identifier(element.getAsString())),
-			buf -> Registry.BLOCK.get(buf.readIdentifier()),
-			(buf, value) -> buf.writeIdentifier(Registry.BLOCK.getId(value))
+			buf -> Registry.BLOCK.get(RecipeStringTable.readIdentifier(buf)),
+			(buf, value) -> RecipeStringTable.writeIdentifier(buf, Registry.BLOCK.getId(value)),
+			value -> RecipeStringTable.sizeOfIdentifier(Registry.BLOCK.getId(value))
 		));
 	}
 }
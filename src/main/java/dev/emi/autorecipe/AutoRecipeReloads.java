@@ -0,0 +1,51 @@
+package dev.emi.autorecipe;
+
+import net.minecraft.recipe.RecipeManager;
+
+/**
+ * Hooks around server recipe reloads, called by the recipe manager mixin and not intended for use by mods
+ */
+public final class AutoRecipeReloads {
+
+	private AutoRecipeReloads() {
+	}
+
+	public static void begin() {
+		if (AutoRecipeMetrics.isEnabled()) {
+			AutoRecipeMetrics.reset();
+		}
+		if (RecipeInterner.isEnabled()) {
+			RecipeInterner.clear();
+		}
+		RecipePayloadCache.clear();
+		// Only reloads advance the arenas, as an integrated server shares them with its client
+		RecipeArena.advance();
+		if (RecipeReuse.isEnabled()) {
+			RecipeReuse.beginReload();
+		}
+		RecipeCache cache = RecipeCache.getInstance();
+		if (cache != null) {
+			cache.beginReload();
+		}
+	}
+
+	/**
+	 * Called whenever a recipe manager's recipes are replaced, on either side
+	 */
+	public static void recipesChanged(RecipeManager manager) {
+		RecipeIndex.invalidate(manager);
+	}
+
+	public static void end() {
+		if (RecipeReuse.isEnabled()) {
+			RecipeReuse.endReload();
+		}
+		RecipeCache cache = RecipeCache.getInstance();
+		if (cache != null) {
+			cache.endReload();
+		}
+		if (AutoRecipeMetrics.isEnabled()) {
+			AutoRecipeMetrics.logSummary();
+		}
+	}
+}
@@ -1,29 +1,31 @@
 package dev.emi.autorecipe;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Function;
-import java.util.function.IntFunction;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import io.netty.buffer.Unpooled;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.recipe.Recipe;
 import net.minecraft.recipe.RecipeSerializer;
@@ -33,25 +35,63 @@ import net.minecraft.util.collection.DefaultedList;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class AutoRecipeSerializer<T extends Recipe<?>> implements RecipeSerializer<T> {
 	private static final Logger LOG = LogManager.getLogger("autorecipe");
+	private static final int BULK_READ_THRESHOLD = 32;
 	private final Function<Identifier, T> constructor;
-	private final Map<RecipeVar, Field> variables = new LinkedHashMap<>();
+	private final List<Field> variables = new ArrayList<>();
+	private final Class<T> clazz;
+	private final Identifier id;
 	private final String namespace;
+	private final boolean lazy;
+	private final boolean cacheable;
+	private final Class<?> codecClass;
+	private volatile RecipeField[] compiled;
+	private RecipeField[] measured;
+	private RecipeCodec<T> codec;
+	private RecipePathTrie pathTrie;
+	private RecipeField[] keyFields;
+	private long layoutFingerprint;
+	private int intLanes, longLanes;
+	private volatile RecipeArena arena;
+	private final RecipeReuse reuse = new RecipeReuse();
 
 	public AutoRecipeSerializer(Function<Identifier, T> constructor, Class<T> clazz, Identifier id) {
+		this(constructor, clazz, id, null);
+	}
+
+	/**
+	 * @param codecClass A generated {@link RecipeCodec} to use instead of reflection, or null
+	 */
+	public AutoRecipeSerializer(Function<Identifier, T> constructor, Class<T> clazz, Identifier id, Class<?> codecClass) {
 		this.constructor = constructor;
+		this.codecClass = codecClass;
+		this.clazz = clazz;
+		this.id = id;
 		namespace = id.getNamespace();
+		lazy = clazz.isAnnotationPresent(LazyRecipe.class);
+		cacheable = clazz.isAnnotationPresent(CacheableRecipe.class);
+		if (lazy && !LazyAutoSerializedRecipe.class.isAssignableFrom(clazz)) {
+			throw new IllegalArgumentException("Lazy recipe " + clazz.getTypeName() + " must extend LazyAutoSerializedRecipe");
+		}
 		Field[] fields = clazz.getDeclaredFields();
 		for (Field field : fields) {
 			RecipeVar annot = field.getAnnotation(RecipeVar.class);
-			if (annot != null) {
-				variables.put(annot, field);
+			if (annot != null && Modifier.isStatic(field.getModifiers())) {
+				if (!ColumnarRecipe.class.isAssignableFrom(clazz) || !Modifier.isFinal(field.getModifiers())
+						|| !RecipeColumn.class.isAssignableFrom(field.getType())) {
+					throw new IllegalArgumentException("Static recipe variable " + clazz.getTypeName() + "#" + field.getName()
+						+ " must be a final RecipeColumn of a ColumnarRecipe");
+				}
+				variables.add(field);
+			} else if (annot != null) {
+				variables.add(field);
 				RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, field.getType());
-				if (field.getType() == Map.class) {
+				if (field.getType() == Map.class || FastutilCodecs.isMap(field.getType())) {
 					Class<?> stringType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
 					if (stringType != String.class) {
 						try {
-							Constructor cs = stringType.getConstructor(String.class);
-							if (cs == null || !cs.canAccess(this)) {
+							// getConstructor only finds public constructors, so only the key class itself can be inaccessible
+							stringType.getConstructor(String.class);
+							if (!Modifier.isPublic(stringType.getModifiers())) {
 								throw new RuntimeException("Map key for field " + field.getName() + " cannot be constructed from a string");
 							}
 						} catch (NoSuchMethodException e) {
@@ -59,7 +99,7 @@ public class AutoRecipeSerializer<T extends Recipe<?>> implements RecipeSerializ
 						}
 					}
 				} else if (serializer == null && field.getType() != List.class && field.getType() != Set.class
-						&& field.getType() != DefaultedList.class) {
+						&& field.getType() != DefaultedList.class && !FastutilCodecs.isList(field.getType())) {
 					LOG.warn("No serializer found for type " + field.getType().getTypeName() + " at "
 						+ clazz.getTypeName() + "#" + field.getName() + ", has it not been registered yet?");
 				}
@@ -67,8 +107,171 @@ public class AutoRecipeSerializer<T extends Recipe<?>> implements RecipeSerializ
 		}
 	}
 
+	/**
+	 * @return The compiled fields of this serializer's recipe class, freezing the registry and resolving serializers on first use
+	 */
+	RecipeField[] getFields() {
+		RecipeField[] fields = compiled;
+		if (fields == null) {
+			synchronized (this) {
+				fields = compiled;
+				if (fields == null) {
+					AutoRecipeRegistry.freeze();
+					fields = new RecipeField[variables.size()];
+					Hasher hasher = Hashing.murmur3_128().newHasher().putString(clazz.getName(), StandardCharsets.UTF_8)
+						.putString(codecClass == null ? "" : codecClass.getName(), StandardCharsets.UTF_8);
+					for (int i = 0; i < fields.length; i++) {
+						Field field = variables.get(i);
+						fields[i] = RecipeField.compile(namespace, field, field.getAnnotation(RecipeVar.class));
+						hasher.putString(fields[i].layout(), StandardCharsets.UTF_8);
+					}
+					layoutFingerprint = hasher.hash().asLong();
+					pathTrie = RecipePathTrie.of(fields);
+					keyFields = Arrays.stream(fields).filter(f -> f.key).toArray(RecipeField[]::new);
+					for (RecipeField field : fields) {
+						if (field instanceof RecipeField.ColumnField) {
+							RecipeColumn column = ((RecipeField.ColumnField) field).column;
+							column.attach(clazz, column.isWide() ? longLanes++ : intLanes++);
+						}
+					}
+					if (codecClass != null) {
+						try {
+							codec = (RecipeCodec<T>) codecClass.getConstructor(String.class).newInstance(namespace);
+						} catch (ReflectiveOperationException e) {
+							throw new RuntimeException("Cannot create generated codec " + codecClass.getTypeName(), e);
+						}
+					}
+					measured = new RecipeField[fields.length];
+					for (int i = 0; i < fields.length; i++) {
+						measured[i] = new RecipeField.MeasuredField(fields[i], id + "#" + fields[i].field.getName());
+					}
+					compiled = fields;
+				}
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * @return The compiled fields, wrapped to record metrics when they are enabled
+	 */
+	private RecipeField[] activeFields() {
+		RecipeField[] fields = getFields();
+		return AutoRecipeMetrics.isEnabled() ? measured : fields;
+	}
+
+	RecipeReuse getReuse() {
+		return reuse;
+	}
+
+	/**
+	 * @return The generated codec, or null when there is none or metrics are enabled, as only the reflective fields
+	 * record per field metrics
+	 */
+	private RecipeCodec<T> activeCodec() {
+		getFields();
+		return AutoRecipeMetrics.isEnabled() ? null : codec;
+	}
+
+	boolean isLazy() {
+		return lazy;
+	}
+
+	boolean isCacheable() {
+		return cacheable;
+	}
+
+	/**
+	 * @return Whether recipes are written with their length and decoded from a copy of their bytes, either because
+	 * they are lazy or because the sync packet is being decoded asynchronously
+	 */
+	private boolean isFramed() {
+		return lazy || AsyncRecipeDecoding.isActive() && AutoSerializedRecipe.class.isAssignableFrom(clazz);
+	}
+
+	/**
+	 * @return The fields marked as lookup keys for the recipe index
+	 */
+	RecipeField[] getKeyFields() {
+		getFields();
+		return keyFields;
+	}
+
+	public Identifier getId() {
+		return id;
+	}
+
+	/**
+	 * @return A hash of the recipe class's fields and their serializers, which changes whenever the packet encoding could
+	 */
+	long getLayoutFingerprint() {
+		getFields();
+		return layoutFingerprint;
+	}
+
 	@Override
 	public T read(Identifier id, JsonObject json) {
+		if (AutoRecipeMetrics.isEnabled()) {
+			long start = System.nanoTime();
+			T t;
+			try {
+				t = readUnmeasured(id, json);
+			} catch (RuntimeException e) {
+				AutoRecipeMetrics.recordRecipeFailure(this.id, AutoRecipeMetrics.Operation.JSON_READ);
+				throw e;
+			}
+			AutoRecipeMetrics.recordRecipe(this.id, AutoRecipeMetrics.Operation.JSON_READ, id, System.nanoTime() - start, 0);
+			return t;
+		}
+		return readUnmeasured(id, json);
+	}
+
+	/**
+	 * Reads a recipe from a json token stream, only building elements for subtrees at field paths and skipping the rest
+	 */
+	public T read(Identifier id, JsonReader reader) throws IOException {
+		reader.beginObject();
+		return readMembers(id, reader);
+	}
+
+	/**
+	 * Reads a recipe from the remaining members of an object whose {@code beginObject} has already been consumed
+	 */
+	T readMembers(Identifier id, JsonReader reader) throws IOException {
+		getFields();
+		JsonObject json = new JsonObject();
+		pathTrie.readMembers(reader, json);
+		reader.endObject();
+		return read(id, json);
+	}
+
+	private T readUnmeasured(Identifier id, JsonObject json) {
+		if (RecipeReuse.isActive() && !ColumnarRecipe.class.isAssignableFrom(clazz)) {
+			return reuse.read(id, json, this::readCached);
+		}
+		return readCached(id, json);
+	}
+
+	private T readCached(Identifier id, JsonObject json) {
+		RecipeCache cache = RecipeCache.getInstance();
+		if (cache != null) {
+			return cache.read(this, id, json);
+		}
+		return readJson(id, json);
+	}
+
+	T readJson(Identifier id, JsonObject json) {
+		T t = create(id);
+		if (lazy) {
+			((AutoSerializedRecipe) t).pendingSource = json;
+			((AutoSerializedRecipe) t).pendingLoad = () -> populatePending(t, id);
+		} else {
+			populateJson(t, id, json);
+		}
+		return t;
+	}
+
+	private T create(Identifier id) {
 		T t = constructor.apply(id);
 		//if (t instanceof AutoSerializedRecipe asr && asr.id == null) {
 		//	asr.id = id;
@@ -79,222 +282,440 @@ public class AutoRecipeSerializer<T extends Recipe<?>> implements RecipeSerializ
 				asr.id = id;
 			}
 		}
-		for (Map.Entry<RecipeVar, Field> entry : variables.entrySet()) {
-			RecipeVar var = entry.getKey();
-			Field field = entry.getValue();
-			try {
-				JsonElement el = null;
-				try {
-					String[] parts = var.value().split("/");
-					JsonObject obj = json;
-					int i = 0;
-					while (i + 1 < parts.length) {
-						obj = obj.getAsJsonObject(parts[i]);
-						i++;
-					}
-					el = obj.get(parts[i]);
-				} catch (Exception e) {
-					if (var.required()) {
-						throw new RuntimeException(e);
-					} else {
-						continue;
-					}
-				}
-				if (el == null || el.isJsonNull()) {
-					if (var.required()) {
-						throw new RuntimeException("Required element not found");
-					} else {
-						continue;
-					}
-				}
-				Class<?> fieldType = field.getType();
-				if (fieldType == List.class || fieldType == Set.class || fieldType == DefaultedList.class) {
-					Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					Collection collection;
-					if (fieldType == List.class) {
-						collection = Lists.newArrayList();
-					} else if (fieldType == Set.class) {
-						collection = Sets.newHashSet();
-					} else {
-						collection = DefaultedList.of();
-					}
-					if (el.isJsonArray()) {
-						for (JsonElement e : el.getAsJsonArray()) {
-							collection.add(varSerializer.readJson(e));
-						}
-					} else {
-						collection.add(varSerializer.readJson(el));
-					}
-					field.set(t, collection);
-				} else if (fieldType == Map.class) {
-					Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-					Class<?> stringType = (Class<?>) types[0];
-					Class<?> genericType = (Class<?>) types[1];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					Map map = Maps.newHashMap();
-					Function<String, Object> keySupplier;
-					if (stringType == String.class) {
-						keySupplier = s -> s;
-					} else {
-						Constructor constructor = stringType.getConstructor(String.class);
-						keySupplier = s -> {
-							try {
-								return constructor.newInstance(s);
-							} catch (Exception e) {
-								throw new RuntimeException(e);
-							}
-						};
-					}
-					for (Map.Entry<String, JsonElement> me : el.getAsJsonObject().entrySet()) {
-						map.put(keySupplier.apply(me.getKey()), varSerializer.readJson(me.getValue()));
-					}
-					field.set(t, map);
-				} else {
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-					field.set(t, varSerializer.readJson(el));
+		if (t instanceof ColumnarRecipe) {
+			ColumnarRecipe cr = (ColumnarRecipe) t;
+			cr.arena = getArena();
+			cr.row = cr.arena.allocate();
+		}
+		return t;
+	}
+
+	/**
+	 * @return The arena of the current generation for this serializer's columns
+	 */
+	RecipeArena getArena() {
+		getFields();
+		RecipeArena arena = this.arena;
+		int generation = RecipeArena.generation();
+		if (arena == null || arena.generation != generation) {
+			synchronized (this) {
+				arena = this.arena;
+				if (arena == null || arena.generation != generation) {
+					arena = new RecipeArena(generation, intLanes, longLanes);
+					this.arena = arena;
 				}
-			} catch (Exception e) {
-				throw new RuntimeException("Error parsing recipe " + id + ", malformed field " + field.getName(), e);
 			}
 		}
+		return arena;
+	}
+
+	private void populateJson(T t, Identifier id, JsonObject json) {
+		RecipeCodec<T> codec = activeCodec();
+		if (codec != null) {
+			codec.readJson(t, id, json);
+		} else {
+			readJsonFields(t, id, json);
+		}
 		if (t instanceof AutoSerializedRecipe) {
 			((AutoSerializedRecipe) t).compile();
 		}
-		return t;
+	}
+
+	private void readJsonFields(T t, Identifier id, JsonObject json) {
+		for (RecipeField field : activeFields()) {
+			try {
+				JsonElement el = RecipeCodecs.find(json, field.path, field.required);
+				if (el != null) {
+					field.readJson(t, el);
+				}
+			} catch (Exception e) {
+				throw RecipeCodecs.malformed(id, field.field.getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Reads and compiles many recipes in parallel on the common pool
+	 * 
+	 * @see #readAll(Map, ForkJoinPool)
+	 */
+	public BulkReadResult<T> readAll(Map<Identifier, JsonObject> recipes) {
+		return readAll(recipes, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Reads and compiles many recipes in parallel on the provided pool, recipes' {@code compile}
+	 * methods must therefore not depend on shared mutable state.
+	 * Results are ordered by the iteration order of the input, and failures are collected
+	 * per recipe rather than stopping the batch.
+	 */
+	public BulkReadResult<T> readAll(Map<Identifier, JsonObject> recipes, ForkJoinPool pool) {
+		getFields();
+		Identifier[] ids = new Identifier[recipes.size()];
+		JsonObject[] jsons = new JsonObject[ids.length];
+		int i = 0;
+		for (Map.Entry<Identifier, JsonObject> entry : recipes.entrySet()) {
+			ids[i] = entry.getKey();
+			jsons[i] = entry.getValue();
+			i++;
+		}
+		Object[] results = new Object[ids.length];
+		pool.invoke(new BulkReadTask(ids, jsons, results, 0, ids.length));
+		Map<Identifier, T> read = new LinkedHashMap<>();
+		Map<Identifier, Exception> errors = new LinkedHashMap<>();
+		for (i = 0; i < ids.length; i++) {
+			if (results[i] instanceof Exception) {
+				errors.put(ids[i], (Exception) results[i]);
+			} else {
+				read.put(ids[i], (T) results[i]);
+			}
+		}
+		return new BulkReadResult<>(read, errors);
 	}
 
 	@Override
 	public T read(Identifier id, PacketByteBuf buf) {
-		T t = constructor.apply(id);
-		//if (t instanceof AutoSerializedRecipe asr && asr.id == null) {
-		//	asr.id = id;
-		//}
-		if (t instanceof AutoSerializedRecipe) {
-			AutoSerializedRecipe asr = (AutoSerializedRecipe) t;
-			if (asr.id == null) {
-				asr.id = id;
+		if (AutoRecipeMetrics.isEnabled()) {
+			long start = System.nanoTime();
+			int index = buf.readerIndex();
+			T t;
+			try {
+				t = readPacket(id, buf);
+			} catch (RuntimeException e) {
+				AutoRecipeMetrics.recordRecipeFailure(this.id, AutoRecipeMetrics.Operation.PACKET_READ);
+				throw e;
 			}
+			AutoRecipeMetrics.recordRecipe(this.id, AutoRecipeMetrics.Operation.PACKET_READ, id, System.nanoTime() - start,
+				buf.readerIndex() - index);
+			return t;
 		}
-		for (Map.Entry<RecipeVar, Field> entry : variables.entrySet()) {
-			try {
-				Field field = entry.getValue();
-				Class<?> fieldType = field.getType();
-				if (fieldType == List.class) {
-					Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					//field.set(t, buf.readList(varSerializer::readPacket));
-					field.set(t, readCollection(buf, i -> new ArrayList(i), varSerializer::readPacket));
-				} else if (fieldType == Set.class) {
-					Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					//field.set(t, buf.readCollection(i -> new HashSet(), varSerializer::readPacket));
-					field.set(t, readCollection(buf, i -> new HashSet(), varSerializer::readPacket));
-				}  else if (fieldType == DefaultedList.class) {
-					Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					//field.set(t, buf.readCollection(i -> DefaultedList.of(), varSerializer::readPacket));
-					field.set(t, readCollection(buf, i -> DefaultedList.of(), varSerializer::readPacket));
-				} else if (fieldType ==  Map.class) {
-					Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-					Class<?> stringType = (Class<?>) types[0];
-					Class<?> genericType = (Class<?>) types[1];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					Function<String, Object> keySupplier;
-					if (stringType == String.class) {
-						keySupplier = s -> s;
-					} else {
-						Constructor constructor = stringType.getConstructor(String.class);
-						keySupplier = s -> {
-							try {
-								return constructor.newInstance(s);
-							} catch (Exception e) {
-								throw new RuntimeException(e);
-							}
-						};
-					}
-					//field.set(t, buf.readMap(b -> keySupplier.apply(b.readString()), varSerializer::readPacket));
-					field.set(t, readMap(buf, Maps::newHashMapWithExpectedSize, b -> keySupplier.apply(b.readString()),
-						varSerializer::readPacket));
-				} else {
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-					field.set(t, varSerializer.readPacket(buf));
+		return readPacket(id, buf);
+	}
+
+	private T readPacket(Identifier id, PacketByteBuf buf) {
+		T t = create(id);
+		if (isFramed()) {
+			byte[] bytes = new byte[buf.readVarInt()];
+			buf.readBytes(bytes);
+			if (lazy) {
+				((AutoSerializedRecipe) t).pendingSource = bytes;
+				((AutoSerializedRecipe) t).pendingLoad = () -> populatePending(t, id);
+			} else {
+				((AutoSerializedRecipe) t).pendingLoad = () -> populatePacket(t, new PacketByteBuf(Unpooled.wrappedBuffer(bytes)));
+				AsyncRecipeDecoding.submit((AutoSerializedRecipe) t);
+			}
+		} else {
+			populatePacket(t, buf);
+		}
+		return t;
+	}
+
+	/**
+	 * Loads a lazy recipe from its current source, which is only read here so that replacing it releases the old one
+	 */
+	private void populatePending(T t, Identifier id) {
+		Object source = ((AutoSerializedRecipe) t).pendingSource;
+		if (source instanceof JsonObject) {
+			populateJson(t, id, (JsonObject) source);
+		} else {
+			populatePacket(t, new PacketByteBuf(Unpooled.wrappedBuffer((byte[]) source)));
+		}
+	}
+
+	/**
+	 * @return The fields a lazy recipe that has not loaded yet is written as, or null once it has loaded. Recipes read
+	 * from json have it decoded into a scratch recipe the first time, without compiling, and keep the encoded fields in
+	 * place of the json.
+	 */
+	private byte[] pendingFrame(T recipe) {
+		AutoSerializedRecipe asr = (AutoSerializedRecipe) recipe;
+		Object source = asr.pendingSource;
+		if (source instanceof JsonObject) {
+			byte[] frame = encodeJson(recipe, (JsonObject) source);
+			synchronized (asr) {
+				if (asr.pendingSource == source) {
+					asr.pendingSource = frame;
 				}
+			}
+			return frame;
+		}
+		return (byte[]) source;
+	}
+
+	private byte[] encodeJson(T recipe, JsonObject json) {
+		Identifier id = recipe.getId();
+		T scratch = constructor.apply(id);
+		((AutoSerializedRecipe) scratch).id = id;
+		if (recipe instanceof ColumnarRecipe) {
+			// Shares the row the recipe decodes the same values into when it loads
+			((ColumnarRecipe) scratch).arena = ((ColumnarRecipe) recipe).arena;
+			((ColumnarRecipe) scratch).row = ((ColumnarRecipe) recipe).row;
+		}
+		RecipeCodec<T> codec = activeCodec();
+		if (codec != null) {
+			codec.readJson(scratch, id, json);
+		} else {
+			readJsonFields(scratch, id, json);
+		}
+		// Kept bytes are decoded later, outside of the sync packet's string table
+		RecipeStringTable table = RecipeStringTable.suspend();
+		try {
+			PacketByteBuf payload = new PacketByteBuf(Unpooled.buffer(sizeOfPayload(scratch)));
+			writePayload(payload, scratch);
+			byte[] frame = new byte[payload.readableBytes()];
+			payload.readBytes(frame);
+			return frame;
+		} finally {
+			RecipeStringTable.resume(table);
+		}
+	}
+
+	private void populatePacket(T t, PacketByteBuf buf) {
+		populatePacket(t, buf, activeCodec(), activeFields());
+	}
+
+	private void populatePacket(T t, PacketByteBuf buf, RecipeCodec<T> codec, RecipeField[] fields) {
+		if (codec != null) {
+			try {
+				codec.readPacket(t, buf);
 			} catch (Exception e) {
 				throw new RuntimeException("Error parsing packet", e);
 			}
+		} else {
+			for (RecipeField field : fields) {
+				try {
+					field.readPacket(t, buf);
+				} catch (Exception e) {
+					throw new RuntimeException("Error parsing packet field " + field.field.getName(), e);
+				}
+			}
 		}
 		if (t instanceof AutoSerializedRecipe) {
 			((AutoSerializedRecipe) t).compile();
 		}
-		return t;
 	}
 
 	@Override
 	public void write(PacketByteBuf buf, T recipe) {
-		for (Map.Entry<RecipeVar, Field> entry : variables.entrySet()) {
+		if (AutoRecipeMetrics.isEnabled()) {
+			long start = System.nanoTime();
+			int index = buf.writerIndex();
 			try {
-				Field field = entry.getValue();
-				Class<?> fieldType = field.getType();
-				if (fieldType == List.class || fieldType == Set.class || fieldType == DefaultedList.class) {
-					Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-					RecipeVarSerializer varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					Collection list = (Collection) field.get(recipe);
-					//buf.writeCollection(list, varSerializer::writePacket);
-					writeCollection(buf, list, varSerializer::writePacket);
-				} else if (fieldType ==  Map.class) {
-					Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-					Class<?> genericType = (Class<?>) types[1];
-					RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-					//buf.writeMap((Map) field.get(recipe), (b, k) -> b.writeString(k.toString()), varSerializer::writePacket);
-					writeMap(buf, (Map) field.get(recipe), (b, k) -> b.writeString(k.toString()), varSerializer::writePacket);
-				} else {
-					RecipeVarSerializer<Object> varSerializer =
-						(RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-					// Generic hack
-					varSerializer.writePacket(buf, field.get(recipe));
+				writeFields(buf, recipe);
+			} catch (RuntimeException e) {
+				AutoRecipeMetrics.recordRecipeFailure(id, AutoRecipeMetrics.Operation.PACKET_WRITE);
+				throw e;
+			}
+			AutoRecipeMetrics.recordRecipe(id, AutoRecipeMetrics.Operation.PACKET_WRITE, recipe.getId(), System.nanoTime() - start,
+				buf.writerIndex() - index);
+			return;
+		}
+		writeFields(buf, recipe);
+	}
+
+	private void writeFields(PacketByteBuf buf, T recipe) {
+		if (isFramed()) {
+			byte[] pending = lazy ? pendingFrame(recipe) : null;
+			if (pending != null) {
+				buf.writeVarInt(pending.length);
+				buf.writeBytes(pending);
+				return;
+			}
+			((AutoSerializedRecipe) recipe).ensureLoaded();
+			// Kept bytes are decoded later, outside of the sync packet's string table
+			RecipeStringTable table = RecipeStringTable.suspend();
+			try {
+				byte[] cached = RecipePayloadCache.get(recipe);
+				if (cached != null) {
+					buf.writeVarInt(cached.length);
+					buf.writeBytes(cached);
+					return;
 				}
+				PacketByteBuf payload = new PacketByteBuf(Unpooled.buffer(sizeOfPayload(recipe)));
+				writePayload(payload, recipe);
+				RecipePayloadCache.put(recipe, payload, 0);
+				buf.writeVarInt(payload.readableBytes());
+				buf.writeBytes(payload);
+			} finally {
+				RecipeStringTable.resume(table);
+			}
+		} else if (RecipeStringTable.isActive()) {
+			// Encodings against a sync string table depend on the strings written before them, so they are never cached
+			writePayload(buf, recipe);
+		} else {
+			byte[] cached = RecipePayloadCache.get(recipe);
+			if (cached != null) {
+				buf.writeBytes(cached);
+				return;
+			}
+			int start = buf.writerIndex();
+			writePayload(buf, recipe);
+			RecipePayloadCache.put(recipe, buf, start);
+		}
+	}
+
+	private void writePayload(PacketByteBuf buf, T recipe) {
+		writePayload(buf, recipe, activeCodec(), activeFields());
+	}
+
+	private void writePayload(PacketByteBuf buf, T recipe, RecipeCodec<T> codec, RecipeField[] fields) {
+		if (codec != null) {
+			try {
+				codec.write(buf, recipe);
 			} catch (Exception e) {
 				throw new RuntimeException("Error writing packet", e);
 			}
+			return;
+		}
+		for (RecipeField field : fields) {
+			try {
+				field.write(buf, recipe);
+			} catch (Exception e) {
+				throw new RuntimeException("Error writing packet field " + field.field.getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a recipe from an encoding kept by the {@link RecipeCache}, bypassing metrics and the payload cache
+	 */
+	T readCacheEntry(Identifier id, PacketByteBuf buf) {
+		RecipeField[] fields = getFields();
+		T t = create(id);
+		populatePacket(t, buf, codec, fields);
+		return t;
+	}
+
+	/**
+	 * @return The encoding the {@link RecipeCache} keeps for a recipe, written outside of any string table and
+	 * bypassing metrics and the payload cache
+	 */
+	byte[] writeCacheEntry(T recipe) {
+		RecipeField[] fields = getFields();
+		RecipeStringTable table = RecipeStringTable.suspend();
+		try {
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			writePayload(buf, recipe, codec, fields);
+			byte[] payload = new byte[buf.readableBytes()];
+			buf.readBytes(payload);
+			return payload;
+		} finally {
+			RecipeStringTable.resume(table);
+		}
+	}
+
+	/**
+	 * @return A recipe's fields as written to a packet, outside of any string table or frame, which are the same for a
+	 * lazy recipe before and after it loads, and do not load it
+	 */
+	byte[] encodeContent(T recipe) {
+		byte[] pending = lazy ? pendingFrame(recipe) : null;
+		return pending != null ? pending : writeCacheEntry(recipe);
+	}
+
+	/**
+	 * @return The number of bytes {@link #write} writes for a recipe, counting strings against a copy of the current
+	 * {@link RecipeStringTable}, which is left as it was
+	 */
+	public int sizeOf(T recipe) {
+		RecipeStringTable table = RecipeStringTable.beginSizing(false);
+		try {
+			return sizeOfInSequence(recipe);
+		} finally {
+			RecipeStringTable.resume(table);
 		}
 	}
 
-	private <G> void writeCollection(PacketByteBuf buf, Collection<G> collection, BiConsumer<PacketByteBuf, G> entrySerializer) {
-		buf.writeVarInt(collection.size());
-		for (G val : collection) {
-			entrySerializer.accept(buf, val);
+	/**
+	 * Sizes a recipe against the bound table, recording its strings as if they were written, for sizing a sequence of
+	 * recipes against a scratch table bound by {@link RecipeStringTable#beginSizing}
+	 */
+	int sizeOfInSequence(T recipe) {
+		if (isFramed()) {
+			byte[] pending = lazy ? pendingFrame(recipe) : null;
+			if (pending != null) {
+				return PacketByteBuf.getVarIntSizeBytes(pending.length) + pending.length;
+			}
+			((AutoSerializedRecipe) recipe).ensureLoaded();
+			RecipeStringTable table = RecipeStringTable.suspend();
+			try {
+				int size = sizeOfCachedPayload(recipe);
+				return PacketByteBuf.getVarIntSizeBytes(size) + size;
+			} finally {
+				RecipeStringTable.resume(table);
+			}
 		}
+		return sizeOfCachedPayload(recipe);
 	}
 
-	private <G, C extends Collection<G>> C readCollection(PacketByteBuf buf, IntFunction<C> collectionFactory,
-			Function<PacketByteBuf, G> entryParser) {
-		int i = buf.readVarInt();
-		C collection = collectionFactory.apply(i);
-		for(int j = 0; j < i; j++) {
-			collection.add(entryParser.apply(buf));
+	/**
+	 * @return Whether {@link #sizeOf} computes sizes rather than measuring them by writing, which generated codecs do
+	 */
+	boolean isSizedExactly() {
+		return activeCodec() == null;
+	}
+
+	private int sizeOfCachedPayload(T recipe) {
+		if (!RecipeStringTable.isActive()) {
+			byte[] cached = RecipePayloadCache.get(recipe);
+			if (cached != null) {
+				return cached.length;
+			}
 		}
-		return collection;
+		return sizeOfPayload(recipe);
 	}
 
-	private <K, V> void writeMap(PacketByteBuf buf, Map<K, V> map, BiConsumer<PacketByteBuf, K> keySerializer,
-			BiConsumer<PacketByteBuf, V> valueSerializer) {
-		buf.writeVarInt(map.size());
-		map.forEach((key, value) -> {
-			keySerializer.accept(buf, key);
-			valueSerializer.accept(buf, value);
-		});
+	private int sizeOfPayload(T recipe) {
+		RecipeCodec<T> codec = activeCodec();
+		if (codec != null) {
+			// Generated codecs have no sizing, so they are measured
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			try {
+				codec.write(buf, recipe);
+			} catch (Exception e) {
+				throw new RuntimeException("Error sizing packet", e);
+			}
+			return buf.readableBytes();
+		}
+		int size = 0;
+		for (RecipeField field : activeFields()) {
+			try {
+				size += field.sizeOf(recipe);
+			} catch (Exception e) {
+				throw new RuntimeException("Error sizing packet", e);
+			}
+		}
+		return size;
 	}
 
-	public <K, V, M extends Map<K, V>> M readMap(PacketByteBuf buf, IntFunction<M> mapFactory,
-			Function<PacketByteBuf, K> keyParser, Function<PacketByteBuf, V> valueParser) {
-		int i = buf.readVarInt();
-		M map = mapFactory.apply(i);
-		for(int j = 0; j < i; j++) {
-			K key = keyParser.apply(buf);
-			V value = valueParser.apply(buf);
-			map.put(key, value);
+	private class BulkReadTask extends RecursiveAction {
+		private final Identifier[] ids;
+		private final JsonObject[] jsons;
+		private final Object[] results;
+		private final int from, to;
+
+		private BulkReadTask(Identifier[] ids, JsonObject[] jsons, Object[] results, int from, int to) {
+			this.ids = ids;
+			this.jsons = jsons;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BULK_READ_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					try {
+						results[i] = read(ids[i], jsons[i]);
+					} catch (Exception e) {
+						results[i] = e;
+					}
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BulkReadTask(ids, jsons, results, from, mid), new BulkReadTask(ids, jsons, results, mid, to));
+			}
 		}
-		return map;
 	}
 }
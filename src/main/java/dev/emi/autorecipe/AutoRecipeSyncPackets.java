@@ -0,0 +1,65 @@
+package dev.emi.autorecipe;
+
+import java.util.Collection;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.Recipe;
+
+/**
+ * Hooks around the vanilla recipe sync packet, called by the packet mixin and not intended for use by mods. When an
+ * optional encoding is enabled, the packet starts with a negative marker holding its flags ahead of the recipe count,
+ * so the client decodes by what the server wrote rather than by its own settings, and clients without the library
+ * fail to read the packet instead of misreading it.
+ */
+public final class AutoRecipeSyncPackets {
+	private static final int STRING_TABLE = 1;
+	private static final int ASYNC_FRAMES = 2;
+	private static final int KNOWN_FLAGS = STRING_TABLE | ASYNC_FRAMES;
+
+	private AutoRecipeSyncPackets() {
+	}
+
+	public static void beginWrite(PacketByteBuf buf, Collection<? extends Recipe<?>> recipes) {
+		int flags = 0;
+		if (RecipeStringTable.isEnabled()) {
+			flags |= STRING_TABLE;
+		}
+		if (AsyncRecipeDecoding.isEnabled()) {
+			flags |= ASYNC_FRAMES;
+		}
+		if (flags != 0) {
+			buf.writeVarInt(~flags);
+		}
+		AsyncRecipeDecoding.begin((flags & ASYNC_FRAMES) != 0);
+		// Grows the buffer up front for the recipes that can be sized without writing them
+		buf.ensureWritable(RecipeSyncState.presizeOfSync(recipes));
+		RecipeStringTable.begin((flags & STRING_TABLE) != 0);
+	}
+
+	public static void beginRead(PacketByteBuf buf) {
+		int start = buf.readerIndex();
+		int marker = buf.readVarInt();
+		int flags = 0;
+		if (marker < 0) {
+			flags = ~marker;
+		} else {
+			buf.readerIndex(start);
+		}
+		if ((flags & ~KNOWN_FLAGS) != 0) {
+			throw new RuntimeException("Recipe sync packet uses unknown encoding flags " + Integer.toBinaryString(flags));
+		}
+		// Packets are only decoded by remote clients, as the integrated server hands its client the packet as is
+		RecipeArena.advance();
+		AsyncRecipeDecoding.begin((flags & ASYNC_FRAMES) != 0);
+		RecipeStringTable.begin((flags & STRING_TABLE) != 0);
+	}
+
+	/**
+	 * Unbinds the packet's state from this thread, called once the packet is done and when reading or writing a recipe
+	 * fails, so that nothing leaks into the next packet handled on the same thread
+	 */
+	public static void end() {
+		RecipeStringTable.end();
+		AsyncRecipeDecoding.end();
+	}
+}
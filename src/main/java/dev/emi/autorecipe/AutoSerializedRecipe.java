@@ -1,13 +1,23 @@
 package dev.emi.autorecipe;
 
 import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
 import net.minecraft.recipe.Recipe;
 import net.minecraft.recipe.RecipeSerializer;
 import net.minecraft.recipe.RecipeType;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.collection.DefaultedList;
 
 public abstract class AutoSerializedRecipe<T extends Inventory> implements Recipe<T> {
 	public Identifier id;
+	volatile Runnable pendingLoad;
+	/**
+	 * The json or packet fields a lazy recipe loads from, replaced by its fields once first synced so that only one of
+	 * them is kept, and read by {@link #pendingLoad} when it runs
+	 */
+	volatile Object pendingSource;
+	private boolean loading;
 
 	/**
 	 * Called after being parsed, to finalize values
@@ -15,11 +25,44 @@ public abstract class AutoSerializedRecipe<T extends Inventory> implements Recip
 	public void compile() {
 	}
 
+	/**
+	 * For {@link LazyRecipe} recipes, decodes fields and compiles the recipe if that has not happened yet.
+	 * Safe to call from any thread, including from {@code compile} while loading, and does nothing for other recipes
+	 */
+	public final void ensureLoaded() {
+		if (pendingLoad != null) {
+			synchronized (this) {
+				Runnable load = pendingLoad;
+				if (load != null && !loading) {
+					loading = true;
+					try {
+						load.run();
+						pendingLoad = null;
+						pendingSource = null;
+					} finally {
+						loading = false;
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public boolean fits(int width, int height) {
 		return true;
 	}
 
+	/**
+	 * The interface defaults, which {@link LazyAutoSerializedRecipe} cannot call directly
+	 */
+	final DefaultedList<ItemStack> defaultRemainingStacks(T inv) {
+		return Recipe.super.getRemainingStacks(inv);
+	}
+
+	final DefaultedList<Ingredient> defaultPreviewInputs() {
+		return Recipe.super.getPreviewInputs();
+	}
+
 	@Override
 	public Identifier getId() {
 		return id;
@@ -0,0 +1,37 @@
+package dev.emi.autorecipe;
+
+import java.util.Collections;
+import java.util.Map;
+
+import net.minecraft.util.Identifier;
+
+/**
+ * The results of reading many recipes at once, with failures collected per recipe instead of aborting the batch
+ */
+public class BulkReadResult<T> {
+	private final Map<Identifier, T> recipes;
+	private final Map<Identifier, Exception> errors;
+
+	BulkReadResult(Map<Identifier, T> recipes, Map<Identifier, Exception> errors) {
+		this.recipes = Collections.unmodifiableMap(recipes);
+		this.errors = Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * @return Successfully read recipes, in the iteration order of the input
+	 */
+	public Map<Identifier, T> getRecipes() {
+		return recipes;
+	}
+
+	/**
+	 * @return Exceptions for recipes that failed to read, in the iteration order of the input
+	 */
+	public Map<Identifier, Exception> getErrors() {
+		return errors;
+	}
+
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+}
@@ -0,0 +1,15 @@
+package dev.emi.autorecipe;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Allows the {@link RecipeCache} to store a recipe type in its packet encoding. Only types whose packet encoding holds
+ * everything their json decodes to should be marked, as cached recipes are decoded from it instead of from json.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheableRecipe {
+}
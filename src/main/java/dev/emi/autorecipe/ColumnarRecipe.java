@@ -0,0 +1,24 @@
+package dev.emi.autorecipe;
+
+import net.minecraft.inventory.Inventory;
+
+/**
+ * A recipe whose simple values are stored in columns shared by every recipe of its type rather than in its own
+ * fields, for types with very large numbers of recipes. Values are declared as {@code static final}
+ * {@link RecipeColumn} fields annotated with {@link RecipeVar}, and read with the column's {@code get}:
+ *
+ * <pre>
+ * &#64;RecipeVar("time")
+ * public static final RecipeColumn.OfInt TIME = RecipeColumn.ofInt();
+ *
+ * public int getTime() {
+ * 	return TIME.get(this);
+ * }
+ * </pre>
+ *
+ * Regular {@code @RecipeVar} fields can be mixed in for values columns cannot hold, such as collections.
+ */
+public abstract class ColumnarRecipe<T extends Inventory> extends AutoSerializedRecipe<T> {
+	RecipeArena arena;
+	int row;
+}
@@ -0,0 +1,426 @@
+package dev.emi.autorecipe;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.floats.FloatList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.network.PacketByteBuf;
+
+/**
+ * Decoding for fastutil primitive list and string keyed map fields, reading elements through primitive serializers
+ * without boxing. Lists accept a json array or a single element, like other collections. Serializers overridden
+ * without primitive support are adapted, boxing each element.
+ */
+@SuppressWarnings("unchecked")
+final class FastutilCodecs {
+
+	private FastutilCodecs() {
+	}
+
+	static boolean isList(Class<?> clazz) {
+		return clazz == IntList.class || clazz == LongList.class || clazz == FloatList.class || clazz == DoubleList.class;
+	}
+
+	static boolean isMap(Class<?> clazz) {
+		return clazz == Object2IntMap.class || clazz == Object2LongMap.class || clazz == Object2FloatMap.class
+			|| clazz == Object2DoubleMap.class;
+	}
+
+	/**
+	 * @return The element type of a fastutil list or the value type of a fastutil map
+	 */
+	static Class<?> elementType(Class<?> clazz) {
+		if (clazz == IntList.class || clazz == Object2IntMap.class) {
+			return int.class;
+		} else if (clazz == LongList.class || clazz == Object2LongMap.class) {
+			return long.class;
+		} else if (clazz == FloatList.class || clazz == Object2FloatMap.class) {
+			return float.class;
+		}
+		return double.class;
+	}
+
+	static RecipeVarSerializer.OfInt ofInt(RecipeVarSerializer<?> serializer) {
+		if (serializer instanceof RecipeVarSerializer.OfInt) {
+			return (RecipeVarSerializer.OfInt) serializer;
+		}
+		RecipeVarSerializer<Integer> boxed = (RecipeVarSerializer<Integer>) serializer;
+		return new RecipeVarSerializer.OfInt() {
+			public int readJsonInt(JsonElement element) {
+				return boxed.readJson(element);
+			}
+			public int readPacketInt(PacketByteBuf buf) {
+				return boxed.readPacket(buf);
+			}
+			public void writePacketInt(PacketByteBuf buf, int value) {
+				boxed.writePacket(buf, value);
+			}
+		};
+	}
+
+	static RecipeVarSerializer.OfLong ofLong(RecipeVarSerializer<?> serializer) {
+		if (serializer instanceof RecipeVarSerializer.OfLong) {
+			return (RecipeVarSerializer.OfLong) serializer;
+		}
+		RecipeVarSerializer<Long> boxed = (RecipeVarSerializer<Long>) serializer;
+		return new RecipeVarSerializer.OfLong() {
+			public long readJsonLong(JsonElement element) {
+				return boxed.readJson(element);
+			}
+			public long readPacketLong(PacketByteBuf buf) {
+				return boxed.readPacket(buf);
+			}
+			public void writePacketLong(PacketByteBuf buf, long value) {
+				boxed.writePacket(buf, value);
+			}
+		};
+	}
+
+	static RecipeVarSerializer.OfFloat ofFloat(RecipeVarSerializer<?> serializer) {
+		if (serializer instanceof RecipeVarSerializer.OfFloat) {
+			return (RecipeVarSerializer.OfFloat) serializer;
+		}
+		RecipeVarSerializer<Float> boxed = (RecipeVarSerializer<Float>) serializer;
+		return new RecipeVarSerializer.OfFloat() {
+			public float readJsonFloat(JsonElement element) {
+				return boxed.readJson(element);
+			}
+			public float readPacketFloat(PacketByteBuf buf) {
+				return boxed.readPacket(buf);
+			}
+			public void writePacketFloat(PacketByteBuf buf, float value) {
+				boxed.writePacket(buf, value);
+			}
+		};
+	}
+
+	static RecipeVarSerializer.OfDouble ofDouble(RecipeVarSerializer<?> serializer) {
+		if (serializer instanceof RecipeVarSerializer.OfDouble) {
+			return (RecipeVarSerializer.OfDouble) serializer;
+		}
+		RecipeVarSerializer<Double> boxed = (RecipeVarSerializer<Double>) serializer;
+		return new RecipeVarSerializer.OfDouble() {
+			public double readJsonDouble(JsonElement element) {
+				return boxed.readJson(element);
+			}
+			public double readPacketDouble(PacketByteBuf buf) {
+				return boxed.readPacket(buf);
+			}
+			public void writePacketDouble(PacketByteBuf buf, double value) {
+				boxed.writePacket(buf, value);
+			}
+		};
+	}
+
+	private static JsonArray array(JsonElement element) {
+		if (element.isJsonArray()) {
+			return element.getAsJsonArray();
+		}
+		JsonArray array = new JsonArray();
+		array.add(element);
+		return array;
+	}
+
+	static IntList readIntList(JsonElement element, RecipeVarSerializer.OfInt serializer) {
+		JsonArray array = array(element);
+		IntList list = new IntArrayList(array.size());
+		for (JsonElement e : array) {
+			list.add(serializer.readJsonInt(e));
+		}
+		return list;
+	}
+
+	static IntList readIntList(PacketByteBuf buf, RecipeVarSerializer.OfInt serializer) {
+		int size = buf.readVarInt();
+		IntList list = new IntArrayList(size);
+		for (int i = 0; i < size; i++) {
+			list.add(serializer.readPacketInt(buf));
+		}
+		return list;
+	}
+
+	static void writeIntList(PacketByteBuf buf, IntList list, RecipeVarSerializer.OfInt serializer) {
+		buf.writeVarInt(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			serializer.writePacketInt(buf, list.getInt(i));
+		}
+	}
+
+	static int sizeOfIntList(IntList list, RecipeVarSerializer.OfInt serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			size += serializer.sizeOfInt(list.getInt(i));
+		}
+		return size;
+	}
+
+	static LongList readLongList(JsonElement element, RecipeVarSerializer.OfLong serializer) {
+		JsonArray array = array(element);
+		LongList list = new LongArrayList(array.size());
+		for (JsonElement e : array) {
+			list.add(serializer.readJsonLong(e));
+		}
+		return list;
+	}
+
+	static LongList readLongList(PacketByteBuf buf, RecipeVarSerializer.OfLong serializer) {
+		int size = buf.readVarInt();
+		LongList list = new LongArrayList(size);
+		for (int i = 0; i < size; i++) {
+			list.add(serializer.readPacketLong(buf));
+		}
+		return list;
+	}
+
+	static void writeLongList(PacketByteBuf buf, LongList list, RecipeVarSerializer.OfLong serializer) {
+		buf.writeVarInt(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			serializer.writePacketLong(buf, list.getLong(i));
+		}
+	}
+
+	static int sizeOfLongList(LongList list, RecipeVarSerializer.OfLong serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			size += serializer.sizeOfLong(list.getLong(i));
+		}
+		return size;
+	}
+
+	static FloatList readFloatList(JsonElement element, RecipeVarSerializer.OfFloat serializer) {
+		JsonArray array = array(element);
+		FloatList list = new FloatArrayList(array.size());
+		for (JsonElement e : array) {
+			list.add(serializer.readJsonFloat(e));
+		}
+		return list;
+	}
+
+	static FloatList readFloatList(PacketByteBuf buf, RecipeVarSerializer.OfFloat serializer) {
+		int size = buf.readVarInt();
+		FloatList list = new FloatArrayList(size);
+		for (int i = 0; i < size; i++) {
+			list.add(serializer.readPacketFloat(buf));
+		}
+		return list;
+	}
+
+	static void writeFloatList(PacketByteBuf buf, FloatList list, RecipeVarSerializer.OfFloat serializer) {
+		buf.writeVarInt(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			serializer.writePacketFloat(buf, list.getFloat(i));
+		}
+	}
+
+	static int sizeOfFloatList(FloatList list, RecipeVarSerializer.OfFloat serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			size += serializer.sizeOfFloat(list.getFloat(i));
+		}
+		return size;
+	}
+
+	static DoubleList readDoubleList(JsonElement element, RecipeVarSerializer.OfDouble serializer) {
+		JsonArray array = array(element);
+		DoubleList list = new DoubleArrayList(array.size());
+		for (JsonElement e : array) {
+			list.add(serializer.readJsonDouble(e));
+		}
+		return list;
+	}
+
+	static DoubleList readDoubleList(PacketByteBuf buf, RecipeVarSerializer.OfDouble serializer) {
+		int size = buf.readVarInt();
+		DoubleList list = new DoubleArrayList(size);
+		for (int i = 0; i < size; i++) {
+			list.add(serializer.readPacketDouble(buf));
+		}
+		return list;
+	}
+
+	static void writeDoubleList(PacketByteBuf buf, DoubleList list, RecipeVarSerializer.OfDouble serializer) {
+		buf.writeVarInt(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			serializer.writePacketDouble(buf, list.getDouble(i));
+		}
+	}
+
+	static int sizeOfDoubleList(DoubleList list, RecipeVarSerializer.OfDouble serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			size += serializer.sizeOfDouble(list.getDouble(i));
+		}
+		return size;
+	}
+
+	static <K> Object2IntMap<K> readIntMap(JsonElement element, RecipeVarSerializer.OfInt serializer,
+			Function<String, K> keyFactory) {
+		JsonObject obj = element.getAsJsonObject();
+		Object2IntMap<K> map = new Object2IntOpenHashMap<>(obj.size());
+		for (Map.Entry<String, JsonElement> me : obj.entrySet()) {
+			map.put(RecipeInterner.intern(keyFactory.apply(me.getKey())), serializer.readJsonInt(me.getValue()));
+		}
+		return map;
+	}
+
+	static <K> Object2IntMap<K> readIntMap(PacketByteBuf buf, RecipeVarSerializer.OfInt serializer,
+			Function<String, K> keyFactory) {
+		int size = buf.readVarInt();
+		Object2IntMap<K> map = new Object2IntOpenHashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			K key = RecipeInterner.intern(keyFactory.apply(RecipeStringTable.readString(buf)));
+			map.put(key, serializer.readPacketInt(buf));
+		}
+		return map;
+	}
+
+	static <K> void writeIntMap(PacketByteBuf buf, Object2IntMap<K> map, RecipeVarSerializer.OfInt serializer) {
+		buf.writeVarInt(map.size());
+		for (Object2IntMap.Entry<K> e : map.object2IntEntrySet()) {
+			RecipeStringTable.writeString(buf, e.getKey().toString());
+			serializer.writePacketInt(buf, e.getIntValue());
+		}
+	}
+
+	static <K> int sizeOfIntMap(Object2IntMap<K> map, RecipeVarSerializer.OfInt serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(map.size());
+		for (Object2IntMap.Entry<K> e : map.object2IntEntrySet()) {
+			size += RecipeStringTable.sizeOfString(e.getKey().toString());
+			size += serializer.sizeOfInt(e.getIntValue());
+		}
+		return size;
+	}
+
+	static <K> Object2LongMap<K> readLongMap(JsonElement element, RecipeVarSerializer.OfLong serializer,
+			Function<String, K> keyFactory) {
+		JsonObject obj = element.getAsJsonObject();
+		Object2LongMap<K> map = new Object2LongOpenHashMap<>(obj.size());
+		for (Map.Entry<String, JsonElement> me : obj.entrySet()) {
+			map.put(RecipeInterner.intern(keyFactory.apply(me.getKey())), serializer.readJsonLong(me.getValue()));
+		}
+		return map;
+	}
+
+	static <K> Object2LongMap<K> readLongMap(PacketByteBuf buf, RecipeVarSerializer.OfLong serializer,
+			Function<String, K> keyFactory) {
+		int size = buf.readVarInt();
+		Object2LongMap<K> map = new Object2LongOpenHashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			K key = RecipeInterner.intern(keyFactory.apply(RecipeStringTable.readString(buf)));
+			map.put(key, serializer.readPacketLong(buf));
+		}
+		return map;
+	}
+
+	static <K> void writeLongMap(PacketByteBuf buf, Object2LongMap<K> map, RecipeVarSerializer.OfLong serializer) {
+		buf.writeVarInt(map.size());
+		for (Object2LongMap.Entry<K> e : map.object2LongEntrySet()) {
+			RecipeStringTable.writeString(buf, e.getKey().toString());
+			serializer.writePacketLong(buf, e.getLongValue());
+		}
+	}
+
+	static <K> int sizeOfLongMap(Object2LongMap<K> map, RecipeVarSerializer.OfLong serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(map.size());
+		for (Object2LongMap.Entry<K> e : map.object2LongEntrySet()) {
+			size += RecipeStringTable.sizeOfString(e.getKey().toString());
+			size += serializer.sizeOfLong(e.getLongValue());
+		}
+		return size;
+	}
+
+	static <K> Object2FloatMap<K> readFloatMap(JsonElement element, RecipeVarSerializer.OfFloat serializer,
+			Function<String, K> keyFactory) {
+		JsonObject obj = element.getAsJsonObject();
+		Object2FloatMap<K> map = new Object2FloatOpenHashMap<>(obj.size());
+		for (Map.Entry<String, JsonElement> me : obj.entrySet()) {
+			map.put(RecipeInterner.intern(keyFactory.apply(me.getKey())), serializer.readJsonFloat(me.getValue()));
+		}
+		return map;
+	}
+
+	static <K> Object2FloatMap<K> readFloatMap(PacketByteBuf buf, RecipeVarSerializer.OfFloat serializer,
+			Function<String, K> keyFactory) {
+		int size = buf.readVarInt();
+		Object2FloatMap<K> map = new Object2FloatOpenHashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			K key = RecipeInterner.intern(keyFactory.apply(RecipeStringTable.readString(buf)));
+			map.put(key, serializer.readPacketFloat(buf));
+		}
+		return map;
+	}
+
+	static <K> void writeFloatMap(PacketByteBuf buf, Object2FloatMap<K> map, RecipeVarSerializer.OfFloat serializer) {
+		buf.writeVarInt(map.size());
+		for (Object2FloatMap.Entry<K> e : map.object2FloatEntrySet()) {
+			RecipeStringTable.writeString(buf, e.getKey().toString());
+			serializer.writePacketFloat(buf, e.getFloatValue());
+		}
+	}
+
+	static <K> int sizeOfFloatMap(Object2FloatMap<K> map, RecipeVarSerializer.OfFloat serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(map.size());
+		for (Object2FloatMap.Entry<K> e : map.object2FloatEntrySet()) {
+			size += RecipeStringTable.sizeOfString(e.getKey().toString());
+			size += serializer.sizeOfFloat(e.getFloatValue());
+		}
+		return size;
+	}
+
+	static <K> Object2DoubleMap<K> readDoubleMap(JsonElement element, RecipeVarSerializer.OfDouble serializer,
+			Function<String, K> keyFactory) {
+		JsonObject obj = element.getAsJsonObject();
+		Object2DoubleMap<K> map = new Object2DoubleOpenHashMap<>(obj.size());
+		for (Map.Entry<String, JsonElement> me : obj.entrySet()) {
+			map.put(RecipeInterner.intern(keyFactory.apply(me.getKey())), serializer.readJsonDouble(me.getValue()));
+		}
+		return map;
+	}
+
+	static <K> Object2DoubleMap<K> readDoubleMap(PacketByteBuf buf, RecipeVarSerializer.OfDouble serializer,
+			Function<String, K> keyFactory) {
+		int size = buf.readVarInt();
+		Object2DoubleMap<K> map = new Object2DoubleOpenHashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			K key = RecipeInterner.intern(keyFactory.apply(RecipeStringTable.readString(buf)));
+			map.put(key, serializer.readPacketDouble(buf));
+		}
+		return map;
+	}
+
+	static <K> void writeDoubleMap(PacketByteBuf buf, Object2DoubleMap<K> map, RecipeVarSerializer.OfDouble serializer) {
+		buf.writeVarInt(map.size());
+		for (Object2DoubleMap.Entry<K> e : map.object2DoubleEntrySet()) {
+			RecipeStringTable.writeString(buf, e.getKey().toString());
+			serializer.writePacketDouble(buf, e.getDoubleValue());
+		}
+	}
+
+	static <K> int sizeOfDoubleMap(Object2DoubleMap<K> map, RecipeVarSerializer.OfDouble serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(map.size());
+		for (Object2DoubleMap.Entry<K> e : map.object2DoubleEntrySet()) {
+			size += RecipeStringTable.sizeOfString(e.getKey().toString());
+			size += serializer.sizeOfDouble(e.getDoubleValue());
+		}
+		return size;
+	}
+}
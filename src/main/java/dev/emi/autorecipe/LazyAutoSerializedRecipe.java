@@ -0,0 +1,70 @@
+package dev.emi.autorecipe;
+
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.util.collection.DefaultedList;
+import net.minecraft.world.World;
+
+/**
+ * The base of {@link LazyRecipe} types, which loads the recipe before any of its {@link Recipe} methods run. Children
+ * implement the {@code Loaded} variants of those methods instead, and only need to call {@link #ensureLoaded()}
+ * themselves when reading their fields from elsewhere.
+ */
+public abstract class LazyAutoSerializedRecipe<T extends Inventory> extends AutoSerializedRecipe<T> {
+
+	@Override
+	public final boolean matches(T inv, World world) {
+		ensureLoaded();
+		return matchesLoaded(inv, world);
+	}
+
+	@Override
+	public final ItemStack craft(T inv) {
+		ensureLoaded();
+		return craftLoaded(inv);
+	}
+
+	@Override
+	public final boolean fits(int width, int height) {
+		ensureLoaded();
+		return fitsLoaded(width, height);
+	}
+
+	@Override
+	public final ItemStack getOutput() {
+		ensureLoaded();
+		return getOutputLoaded();
+	}
+
+	@Override
+	public final DefaultedList<ItemStack> getRemainingStacks(T inv) {
+		ensureLoaded();
+		return getRemainingStacksLoaded(inv);
+	}
+
+	@Override
+	public final DefaultedList<Ingredient> getPreviewInputs() {
+		ensureLoaded();
+		return getPreviewInputsLoaded();
+	}
+
+	protected abstract boolean matchesLoaded(T inv, World world);
+
+	protected abstract ItemStack craftLoaded(T inv);
+
+	protected boolean fitsLoaded(int width, int height) {
+		return true;
+	}
+
+	protected abstract ItemStack getOutputLoaded();
+
+	protected DefaultedList<ItemStack> getRemainingStacksLoaded(T inv) {
+		return defaultRemainingStacks(inv);
+	}
+
+	protected DefaultedList<Ingredient> getPreviewInputsLoaded() {
+		return defaultPreviewInputs();
+	}
+}
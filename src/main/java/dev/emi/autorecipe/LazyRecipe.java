@@ -0,0 +1,20 @@
+package dev.emi.autorecipe;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a child of {@link LazyAutoSerializedRecipe} to keep its source json or packet bytes when read, and only decode
+ * its fields and compile on first use, which its {@link net.minecraft.recipe.Recipe} methods trigger. Other code must
+ * call {@link AutoSerializedRecipe#ensureLoaded()} before reading its {@link RecipeVar} fields. Errors in those fields
+ * are only reported when the recipe loads or is first synced.
+ * Their packet encoding is prefixed with its length, and recipes that have not loaded yet are written without being
+ * loaded or compiled: as the packet bytes they were read from, or as fields decoded from their json, which are then
+ * kept in place of the json.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LazyRecipe {
+}
@@ -0,0 +1,107 @@
+package dev.emi.autorecipe;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.util.Identifier;
+
+/**
+ * Columnar storage for the {@link RecipeColumn} values of one {@link ColumnarRecipe} type, holding each column as
+ * primitive lanes in fixed size chunks of rows. Chunks are only ever added, never copied, so rows can be allocated and
+ * written from parallel reads. A new arena generation starts when the server reloads its recipes or a remote client
+ * decodes a recipe sync, and recipes keep the arena they were decoded into alive for as long as they are referenced.
+ */
+final class RecipeArena {
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static volatile int currentGeneration;
+	final int generation;
+	private final int intLanes;
+	private final int longLanes;
+	private volatile int[][][] ints = new int[0][][];
+	private volatile long[][][] longs = new long[0][][];
+	private volatile Identifier[] identifiers = new Identifier[16];
+	private final Object2IntMap<Identifier> identifierIndices = new Object2IntOpenHashMap<>();
+	private int rows;
+
+	RecipeArena(int generation, int intLanes, int longLanes) {
+		this.generation = generation;
+		this.intLanes = intLanes;
+		this.longLanes = longLanes;
+		identifierIndices.defaultReturnValue(-1);
+	}
+
+	static int generation() {
+		return currentGeneration;
+	}
+
+	/**
+	 * Starts a new generation, so that recipes decoded afterwards are stored apart from the ones being replaced
+	 */
+	static synchronized void advance() {
+		currentGeneration++;
+	}
+
+	synchronized int allocate() {
+		int row = rows++;
+		if (row >> CHUNK_BITS == ints.length) {
+			int[][][] ints = Arrays.copyOf(this.ints, this.ints.length + 1);
+			ints[ints.length - 1] = new int[intLanes][CHUNK_SIZE];
+			long[][][] longs = Arrays.copyOf(this.longs, this.longs.length + 1);
+			longs[longs.length - 1] = new long[longLanes][CHUNK_SIZE];
+			this.ints = ints;
+			this.longs = longs;
+		}
+		return row;
+	}
+
+	int getInt(int lane, int row) {
+		return ints[row >> CHUNK_BITS][lane][row & CHUNK_MASK];
+	}
+
+	void setInt(int lane, int row, int value) {
+		ints[row >> CHUNK_BITS][lane][row & CHUNK_MASK] = value;
+	}
+
+	long getLong(int lane, int row) {
+		return longs[row >> CHUNK_BITS][lane][row & CHUNK_MASK];
+	}
+
+	void setLong(int lane, int row, long value) {
+		longs[row >> CHUNK_BITS][lane][row & CHUNK_MASK] = value;
+	}
+
+	/**
+	 * @return A stable index for an identifier, shared by every column of this arena
+	 */
+	synchronized int indexOf(Identifier id) {
+		int index = identifierIndices.getInt(id);
+		if (index == -1) {
+			index = identifierIndices.size();
+			if (index == identifiers.length) {
+				identifiers = Arrays.copyOf(identifiers, index * 2);
+			}
+			identifiers[index] = id;
+			identifierIndices.put(id, index);
+		}
+		return index;
+	}
+
+	Identifier identifier(int index) {
+		return identifiers[index];
+	}
+
+	int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return The bytes held by this arena's lanes and identifier table, excluding the identifiers themselves
+	 */
+	long getAllocatedBytes() {
+		long chunks = ints.length;
+		return chunks * CHUNK_SIZE * (intLanes * 4L + longLanes * 8L) + identifiers.length * 4L;
+	}
+}
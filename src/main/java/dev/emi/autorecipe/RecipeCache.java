@@ -0,0 +1,283 @@
+package dev.emi.autorecipe;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+/**
+ * An on-disk cache of recipes in their packet encoding, letting unchanged recipes skip field decoding from json.
+ * Only types marked {@link CacheableRecipe} are cached, as not every packet encoding holds everything its json decodes
+ * to. Entries are keyed by a hash of the source json and the layout of the recipe class, so changing either
+ * invalidates them. Recipes referencing tags are never cached, as the packet encoding stores resolved tag contents.
+ * {@link LazyRecipe} types are not cached either, as encoding them would decode them at load. Packet encodings also
+ * hold raw registry ids, so the whole file is discarded when any registry differs from the one it was written with.
+ */
+public final class RecipeCache {
+	private static final Logger LOG = LogManager.getLogger("autorecipe");
+	private static final int MAGIC = 0x41524332;
+	private static volatile RecipeCache instance;
+	private final Path file;
+	private volatile Map<Identifier, Entry> previous = Collections.emptyMap();
+	private volatile Map<Identifier, Entry> current = new ConcurrentHashMap<>();
+	private volatile boolean dirty;
+	private long registryFingerprint;
+	private boolean loaded;
+
+	private RecipeCache(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Enables the recipe cache, loading any existing entries from the file on the first reload and saving to it after
+	 * each reload
+	 */
+	public static void enable(Path file) {
+		instance = new RecipeCache(file);
+	}
+
+	public static void disable() {
+		instance = null;
+	}
+
+	static RecipeCache getInstance() {
+		return instance;
+	}
+
+	<T extends Recipe<?>> T read(AutoRecipeSerializer<T> s, Identifier id, JsonObject json) {
+		if (!s.isCacheable() || s.isLazy() || referencesTag(json)) {
+			// Encoding a lazy recipe would decode it, and lazy recipes already defer decoding until they are used
+			return s.readJson(id, json);
+		}
+		long fingerprint = s.getLayoutFingerprint();
+		long hash = hash(json);
+		Entry entry = previous.get(id);
+		if (entry != null && entry.matches(s.getId(), fingerprint, hash)) {
+			try {
+				T t = s.readCacheEntry(id, new PacketByteBuf(Unpooled.wrappedBuffer(entry.payload.duplicate())));
+				current.put(id, entry);
+				return t;
+			} catch (Exception e) {
+				LOG.warn("Discarding unreadable cached recipe " + id, e);
+			}
+		}
+		T t = s.readJson(id, json);
+		byte[] payload = s.writeCacheEntry(t);
+		current.put(id, new Entry(s.getId(), fingerprint, hash, ByteBuffer.wrap(payload)));
+		dirty = true;
+		return t;
+	}
+
+	/**
+	 * Keeps the previous entry of a recipe that was reused without being read
+	 */
+	void retain(Identifier id) {
+		Entry entry = previous.get(id);
+		if (entry != null) {
+			current.put(id, entry);
+		}
+	}
+
+	void beginReload() {
+		if (!loaded) {
+			// Registries are only complete once mods have initialized, so this waits for the first reload
+			loaded = true;
+			registryFingerprint = fingerprintRegistries();
+			load();
+		}
+		if (!current.isEmpty()) {
+			previous = current;
+			current = new ConcurrentHashMap<>();
+		}
+	}
+
+	void endReload() {
+		boolean changed = dirty || current.size() != previous.size();
+		previous = Collections.emptyMap();
+		if (changed) {
+			// A failed save is retried after the next reload, keeping this reload's entries
+			dirty = !save();
+		}
+	}
+
+	private void load() {
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC) {
+				LOG.warn("Ignoring recipe cache with unknown format at " + file);
+				return;
+			}
+			if (buffer.getLong() != registryFingerprint) {
+				LOG.info("Discarding recipe cache at " + file + " written with different registries");
+				return;
+			}
+			int size = buffer.getInt();
+			Map<Identifier, Entry> entries = new HashMap<>(size * 2);
+			for (int i = 0; i < size; i++) {
+				Identifier id = new Identifier(readString(buffer));
+				Identifier serializer = new Identifier(readString(buffer));
+				long fingerprint = buffer.getLong();
+				long hash = buffer.getLong();
+				int length = buffer.getInt();
+				ByteBuffer payload = buffer.slice();
+				((Buffer) payload).limit(length);
+				((Buffer) buffer).position(buffer.position() + length);
+				entries.put(id, new Entry(serializer, fingerprint, hash, payload));
+			}
+			previous = entries;
+		} catch (Exception e) {
+			LOG.warn("Failed to load recipe cache at " + file, e);
+		}
+	}
+
+	/**
+	 * Writes the current entries to a temporary file and moves it over the cache file, first copying entries still
+	 * backed by the mapped file onto the heap so that nothing reads the old file once it is replaced
+	 *
+	 * @return Whether the cache file was replaced
+	 */
+	private boolean save() {
+		Map<Identifier, Entry> entries = current;
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeLong(registryFingerprint);
+				out.writeInt(entries.size());
+				for (Map.Entry<Identifier, Entry> e : entries.entrySet()) {
+					Entry entry = e.getValue();
+					writeString(out, e.getKey().toString());
+					writeString(out, entry.serializer.toString());
+					out.writeLong(entry.fingerprint);
+					out.writeLong(entry.hash);
+					ByteBuffer payload = entry.payload.duplicate();
+					byte[] bytes = new byte[payload.remaining()];
+					payload.get(bytes);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+					if (entry.payload.isDirect()) {
+						e.setValue(new Entry(entry.serializer, entry.fingerprint, entry.hash, ByteBuffer.wrap(bytes)));
+					}
+				}
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch (IOException e) {
+			// Windows refuses to replace the file while its old mapping has not been released yet
+			LOG.warn("Failed to save recipe cache at " + file + ", retrying after the next reload", e);
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException ignored) {
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @return A hash of every registry's ids in raw id order, as built-in encodings hold raw item ids and custom variable
+	 * serializers can hold raw ids of any registry
+	 */
+	private static long fingerprintRegistries() {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		putRegistry(hasher, Registry.REGISTRIES);
+		for (Registry<?> registry : Registry.REGISTRIES) {
+			putRegistry(hasher, registry);
+		}
+		return hasher.hash().asLong();
+	}
+
+	private static <T> void putRegistry(Hasher hasher, Registry<T> registry) {
+		for (T t : registry) {
+			hasher.putInt(registry.getRawId(t)).putString(registry.getId(t).toString(), StandardCharsets.UTF_8);
+		}
+	}
+
+	static long hash(JsonObject json) {
+		return Hashing.murmur3_128().hashString(json.toString(), StandardCharsets.UTF_8).asLong();
+	}
+
+	/**
+	 * @return Whether json contains a {@code tag} member anywhere, such as a tag ingredient, whose decoding depends on
+	 * the loaded tags
+	 */
+	public static boolean referencesTag(JsonElement element) {
+		if (element.isJsonObject()) {
+			for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+				if (entry.getKey().equals("tag") || referencesTag(entry.getValue())) {
+					return true;
+				}
+			}
+		} else if (element.isJsonArray()) {
+			for (JsonElement e : element.getAsJsonArray()) {
+				if (referencesTag(e)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static class Entry {
+		private final Identifier serializer;
+		private final long fingerprint;
+		private final long hash;
+		private final ByteBuffer payload;
+
+		private Entry(Identifier serializer, long fingerprint, long hash, ByteBuffer payload) {
+			this.serializer = serializer;
+			this.fingerprint = fingerprint;
+			this.hash = hash;
+			this.payload = payload;
+		}
+
+		private boolean matches(Identifier serializer, long fingerprint, long hash) {
+			return this.serializer.equals(serializer) && this.fingerprint == fingerprint && this.hash == hash;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package dev.emi.autorecipe;
+
+import com.google.gson.JsonObject;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+/**
+ * Straight-line field reads and writes for a recipe class, generated at compile time by the Auto Recipe
+ * annotation processor as {@code <RecipeClass>_AutoRecipeCodec} with a constructor taking the namespace.
+ * When present it is used in place of reflection by {@link AutoRecipeSerializer}.
+ */
+public interface RecipeCodec<T> {
+	void readJson(T recipe, Identifier id, JsonObject json);
+	void readPacket(T recipe, PacketByteBuf buf);
+	void write(PacketByteBuf buf, T recipe);
+}
@@ -0,0 +1,234 @@
+package dev.emi.autorecipe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.doubles.DoubleLists;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.floats.FloatList;
+import it.unimi.dsi.fastutil.floats.FloatLists;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongLists;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMaps;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatMaps;
+import it.unimi.dsi.fastutil.objects.Object2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMaps;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.collection.DefaultedList;
+
+/**
+ * Shared decoding logic for reflective and generated recipe codecs, public for generated code but not intended
+ * to be called by mods directly
+ */
+@SuppressWarnings("unchecked")
+public final class RecipeCodecs {
+
+	private RecipeCodecs() {
+	}
+
+	public static <T> RecipeVarSerializer<T> serializer(String namespace, Class<T> clazz) {
+		return (RecipeVarSerializer<T>) AutoRecipeRegistry.getVariableSerializer(namespace, clazz);
+	}
+
+	/**
+	 * @return The element at a path, or null if it is optional and absent
+	 * @throws RuntimeException If it is required and absent
+	 */
+	public static JsonElement find(JsonObject json, String[] path, boolean required) {
+		JsonElement el;
+		try {
+			JsonObject obj = json;
+			int i = 0;
+			while (i + 1 < path.length) {
+				obj = obj.getAsJsonObject(path[i]);
+				i++;
+			}
+			el = obj.get(path[i]);
+		} catch (Exception e) {
+			if (required) {
+				throw new RuntimeException(e);
+			}
+			return null;
+		}
+		if (el == null || el.isJsonNull()) {
+			if (required) {
+				throw new RuntimeException("Required element not found");
+			}
+			return null;
+		}
+		return el;
+	}
+
+	public static RuntimeException malformed(Identifier id, String field, Exception e) {
+		return new RuntimeException("Error parsing recipe " + id + ", malformed field " + field, e);
+	}
+
+	/**
+	 * @return An unmodifiable copy of a decoded list, set or map sized for its contents, which may include nulls, or the
+	 * value itself for other types
+	 */
+	public static <T> T immutable(T value) {
+		Object o = value;
+		if (o instanceof IntList) {
+			o = IntLists.unmodifiable(new IntArrayList((IntList) o));
+		} else if (o instanceof LongList) {
+			o = LongLists.unmodifiable(new LongArrayList((LongList) o));
+		} else if (o instanceof FloatList) {
+			o = FloatLists.unmodifiable(new FloatArrayList((FloatList) o));
+		} else if (o instanceof DoubleList) {
+			o = DoubleLists.unmodifiable(new DoubleArrayList((DoubleList) o));
+		} else if (o instanceof Object2IntMap) {
+			o = Object2IntMaps.unmodifiable(new Object2IntOpenHashMap<>((Object2IntMap<?>) o));
+		} else if (o instanceof Object2LongMap) {
+			o = Object2LongMaps.unmodifiable(new Object2LongOpenHashMap<>((Object2LongMap<?>) o));
+		} else if (o instanceof Object2FloatMap) {
+			o = Object2FloatMaps.unmodifiable(new Object2FloatOpenHashMap<>((Object2FloatMap<?>) o));
+		} else if (o instanceof Object2DoubleMap) {
+			o = Object2DoubleMaps.unmodifiable(new Object2DoubleOpenHashMap<>((Object2DoubleMap<?>) o));
+		} else if (o instanceof DefaultedList) {
+			// Has no unmodifiable form that is still a DefaultedList
+		} else if (o instanceof List) {
+			// Serializers can decode null values, which Guava's immutable collections reject
+			o = Collections.unmodifiableList(new ArrayList<>((List<?>) o));
+		} else if (o instanceof Set) {
+			Set<Object> set = Sets.newHashSetWithExpectedSize(((Set<?>) o).size());
+			set.addAll((Set<?>) o);
+			o = Collections.unmodifiableSet(set);
+		} else if (o instanceof Map) {
+			Map<Object, Object> map = Maps.newHashMapWithExpectedSize(((Map<?, ?>) o).size());
+			map.putAll((Map<?, ?>) o);
+			o = Collections.unmodifiableMap(map);
+		}
+		return (T) o;
+	}
+
+	public static <E> List<E> readList(JsonElement element, RecipeVarSerializer<E> serializer) {
+		return readCollection(element, serializer, i -> new ArrayList<>(i));
+	}
+
+	public static <E> Set<E> readSet(JsonElement element, RecipeVarSerializer<E> serializer) {
+		return readCollection(element, serializer, Sets::newHashSetWithExpectedSize);
+	}
+
+	public static <E> DefaultedList<E> readDefaultedList(JsonElement element, RecipeVarSerializer<E> serializer) {
+		return readCollection(element, serializer, i -> DefaultedList.of());
+	}
+
+	public static <E> List<E> readList(PacketByteBuf buf, RecipeVarSerializer<E> serializer) {
+		return readCollection(buf, serializer, i -> new ArrayList<>(i));
+	}
+
+	public static <E> Set<E> readSet(PacketByteBuf buf, RecipeVarSerializer<E> serializer) {
+		return readCollection(buf, serializer, Sets::newHashSetWithExpectedSize);
+	}
+
+	public static <E> DefaultedList<E> readDefaultedList(PacketByteBuf buf, RecipeVarSerializer<E> serializer) {
+		return readCollection(buf, serializer, i -> DefaultedList.of());
+	}
+
+	/**
+	 * Reads a json array, or a single element, into a collection
+	 */
+	public static <E, C extends Collection<E>> C readCollection(JsonElement element, RecipeVarSerializer<E> serializer,
+			IntFunction<C> factory) {
+		C collection;
+		if (element.isJsonArray()) {
+			collection = factory.apply(element.getAsJsonArray().size());
+			for (JsonElement e : element.getAsJsonArray()) {
+				collection.add(RecipeInterner.intern(serializer.readJson(e)));
+			}
+		} else {
+			collection = factory.apply(1);
+			collection.add(RecipeInterner.intern(serializer.readJson(element)));
+		}
+		return collection;
+	}
+
+	public static <E, C extends Collection<E>> C readCollection(PacketByteBuf buf, RecipeVarSerializer<E> serializer,
+			IntFunction<C> factory) {
+		int size = buf.readVarInt();
+		C collection = factory.apply(size);
+		for (int i = 0; i < size; i++) {
+			collection.add(RecipeInterner.intern(serializer.readPacket(buf)));
+		}
+		return collection;
+	}
+
+	public static <E> void writeCollection(PacketByteBuf buf, Collection<E> collection, RecipeVarSerializer<E> serializer) {
+		buf.writeVarInt(collection.size());
+		for (E val : collection) {
+			serializer.writePacket(buf, val);
+		}
+	}
+
+	public static <E> int sizeOfCollection(Collection<E> collection, RecipeVarSerializer<E> serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(collection.size());
+		for (E val : collection) {
+			size += serializer.sizeOf(val);
+		}
+		return size;
+	}
+
+	public static <K, V> Map<K, V> readMap(JsonElement element, RecipeVarSerializer<V> serializer, Function<String, K> keyFactory) {
+		JsonObject obj = element.getAsJsonObject();
+		Map<K, V> map = Maps.newHashMapWithExpectedSize(obj.size());
+		for (Map.Entry<String, JsonElement> me : obj.entrySet()) {
+			K key = RecipeInterner.intern(keyFactory.apply(me.getKey()));
+			map.put(key, RecipeInterner.intern(serializer.readJson(me.getValue())));
+		}
+		return map;
+	}
+
+	public static <K, V> Map<K, V> readMap(PacketByteBuf buf, RecipeVarSerializer<V> serializer, Function<String, K> keyFactory) {
+		int size = buf.readVarInt();
+		Map<K, V> map = Maps.newHashMapWithExpectedSize(size);
+		for (int i = 0; i < size; i++) {
+			K key = RecipeInterner.intern(keyFactory.apply(RecipeStringTable.readString(buf)));
+			map.put(key, RecipeInterner.intern(serializer.readPacket(buf)));
+		}
+		return map;
+	}
+
+	public static <K, V> void writeMap(PacketByteBuf buf, Map<K, V> map, RecipeVarSerializer<V> serializer) {
+		buf.writeVarInt(map.size());
+		map.forEach((key, value) -> {
+			RecipeStringTable.writeString(buf, key.toString());
+			serializer.writePacket(buf, value);
+		});
+	}
+
+	public static <K, V> int sizeOfMap(Map<K, V> map, RecipeVarSerializer<V> serializer) {
+		int size = PacketByteBuf.getVarIntSizeBytes(map.size());
+		for (Map.Entry<K, V> e : map.entrySet()) {
+			size += RecipeStringTable.sizeOfString(e.getKey().toString());
+			size += serializer.sizeOf(e.getValue());
+		}
+		return size;
+	}
+}
@@ -0,0 +1,440 @@
+package dev.emi.autorecipe;
+
+import com.google.gson.JsonElement;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+/**
+ * A value of a {@link ColumnarRecipe}, declared once as a {@code static final} field of its recipe class and stored in
+ * that type's arena. Numbers, booleans and items are stored as primitives, identifiers as indices into a table shared
+ * by the arena, and stacks as their item and count, so stacks with nbt cannot be stored.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public abstract class RecipeColumn {
+	private Class<?> owner;
+	int lane = -1;
+
+	RecipeColumn() {
+	}
+
+	public static OfBoolean ofBoolean() {
+		return new OfBoolean();
+	}
+
+	public static OfInt ofInt() {
+		return new OfInt();
+	}
+
+	public static OfLong ofLong() {
+		return new OfLong();
+	}
+
+	public static OfFloat ofFloat() {
+		return new OfFloat();
+	}
+
+	public static OfDouble ofDouble() {
+		return new OfDouble();
+	}
+
+	public static OfIdentifier ofIdentifier() {
+		return new OfIdentifier();
+	}
+
+	public static OfItem ofItem() {
+		return new OfItem();
+	}
+
+	public static OfStack ofStack() {
+		return new OfStack();
+	}
+
+	/**
+	 * @return The type whose variable serializer decodes this column
+	 */
+	abstract Class<?> getValueType();
+
+	/**
+	 * @return Whether this column is stored in a long lane rather than an int lane
+	 */
+	abstract boolean isWide();
+
+	/**
+	 * Assigns this column its lane in its recipe class's arenas, when the class's serializer compiles its fields
+	 */
+	synchronized void attach(Class<?> owner, int lane) {
+		if (this.owner != null && this.owner != owner) {
+			throw new IllegalStateException("Recipe column is already used by " + this.owner.getTypeName());
+		}
+		this.owner = owner;
+		this.lane = lane;
+	}
+
+	/**
+	 * @return The serializer adapted to the form this column decodes with
+	 */
+	RecipeVarSerializer<?> adapt(RecipeVarSerializer<?> serializer) {
+		return serializer;
+	}
+
+	abstract Object getValue(ColumnarRecipe<?> recipe);
+
+	abstract void setValue(ColumnarRecipe<?> recipe, Object value);
+
+	void readJson(ColumnarRecipe<?> recipe, JsonElement element, RecipeVarSerializer<?> serializer) {
+		setValue(recipe, serializer.readJson(element));
+	}
+
+	void readPacket(ColumnarRecipe<?> recipe, PacketByteBuf buf, RecipeVarSerializer<?> serializer) {
+		setValue(recipe, serializer.readPacket(buf));
+	}
+
+	void write(PacketByteBuf buf, ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+		((RecipeVarSerializer<Object>) serializer).writePacket(buf, getValue(recipe));
+	}
+
+	int sizeOf(ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+		return ((RecipeVarSerializer<Object>) serializer).sizeOf(getValue(recipe));
+	}
+
+	public static final class OfBoolean extends RecipeColumn {
+
+		public boolean get(ColumnarRecipe<?> recipe) {
+			return recipe.arena.getInt(lane, recipe.row) != 0;
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return boolean.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return false;
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			recipe.arena.setInt(lane, recipe.row, (Boolean) value ? 1 : 0);
+		}
+	}
+
+	public static final class OfInt extends RecipeColumn {
+
+		public int get(ColumnarRecipe<?> recipe) {
+			return recipe.arena.getInt(lane, recipe.row);
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return int.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return false;
+		}
+
+		@Override
+		RecipeVarSerializer<?> adapt(RecipeVarSerializer<?> serializer) {
+			return FastutilCodecs.ofInt(serializer);
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			recipe.arena.setInt(lane, recipe.row, (Integer) value);
+		}
+
+		@Override
+		void readJson(ColumnarRecipe<?> recipe, JsonElement element, RecipeVarSerializer<?> serializer) {
+			recipe.arena.setInt(lane, recipe.row, ((RecipeVarSerializer.OfInt) serializer).readJsonInt(element));
+		}
+
+		@Override
+		void readPacket(ColumnarRecipe<?> recipe, PacketByteBuf buf, RecipeVarSerializer<?> serializer) {
+			recipe.arena.setInt(lane, recipe.row, ((RecipeVarSerializer.OfInt) serializer).readPacketInt(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			((RecipeVarSerializer.OfInt) serializer).writePacketInt(buf, get(recipe));
+		}
+
+		@Override
+		int sizeOf(ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			return ((RecipeVarSerializer.OfInt) serializer).sizeOfInt(get(recipe));
+		}
+	}
+
+	public static final class OfLong extends RecipeColumn {
+
+		public long get(ColumnarRecipe<?> recipe) {
+			return recipe.arena.getLong(lane, recipe.row);
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return long.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return true;
+		}
+
+		@Override
+		RecipeVarSerializer<?> adapt(RecipeVarSerializer<?> serializer) {
+			return FastutilCodecs.ofLong(serializer);
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			recipe.arena.setLong(lane, recipe.row, (Long) value);
+		}
+
+		@Override
+		void readJson(ColumnarRecipe<?> recipe, JsonElement element, RecipeVarSerializer<?> serializer) {
+			recipe.arena.setLong(lane, recipe.row, ((RecipeVarSerializer.OfLong) serializer).readJsonLong(element));
+		}
+
+		@Override
+		void readPacket(ColumnarRecipe<?> recipe, PacketByteBuf buf, RecipeVarSerializer<?> serializer) {
+			recipe.arena.setLong(lane, recipe.row, ((RecipeVarSerializer.OfLong) serializer).readPacketLong(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			((RecipeVarSerializer.OfLong) serializer).writePacketLong(buf, get(recipe));
+		}
+
+		@Override
+		int sizeOf(ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			return ((RecipeVarSerializer.OfLong) serializer).sizeOfLong(get(recipe));
+		}
+	}
+
+	public static final class OfFloat extends RecipeColumn {
+
+		public float get(ColumnarRecipe<?> recipe) {
+			return Float.intBitsToFloat(recipe.arena.getInt(lane, recipe.row));
+		}
+
+		private void set(ColumnarRecipe<?> recipe, float value) {
+			recipe.arena.setInt(lane, recipe.row, Float.floatToRawIntBits(value));
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return float.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return false;
+		}
+
+		@Override
+		RecipeVarSerializer<?> adapt(RecipeVarSerializer<?> serializer) {
+			return FastutilCodecs.ofFloat(serializer);
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			set(recipe, (Float) value);
+		}
+
+		@Override
+		void readJson(ColumnarRecipe<?> recipe, JsonElement element, RecipeVarSerializer<?> serializer) {
+			set(recipe, ((RecipeVarSerializer.OfFloat) serializer).readJsonFloat(element));
+		}
+
+		@Override
+		void readPacket(ColumnarRecipe<?> recipe, PacketByteBuf buf, RecipeVarSerializer<?> serializer) {
+			set(recipe, ((RecipeVarSerializer.OfFloat) serializer).readPacketFloat(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			((RecipeVarSerializer.OfFloat) serializer).writePacketFloat(buf, get(recipe));
+		}
+
+		@Override
+		int sizeOf(ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			return ((RecipeVarSerializer.OfFloat) serializer).sizeOfFloat(get(recipe));
+		}
+	}
+
+	public static final class OfDouble extends RecipeColumn {
+
+		public double get(ColumnarRecipe<?> recipe) {
+			return Double.longBitsToDouble(recipe.arena.getLong(lane, recipe.row));
+		}
+
+		private void set(ColumnarRecipe<?> recipe, double value) {
+			recipe.arena.setLong(lane, recipe.row, Double.doubleToRawLongBits(value));
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return double.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return true;
+		}
+
+		@Override
+		RecipeVarSerializer<?> adapt(RecipeVarSerializer<?> serializer) {
+			return FastutilCodecs.ofDouble(serializer);
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			set(recipe, (Double) value);
+		}
+
+		@Override
+		void readJson(ColumnarRecipe<?> recipe, JsonElement element, RecipeVarSerializer<?> serializer) {
+			set(recipe, ((RecipeVarSerializer.OfDouble) serializer).readJsonDouble(element));
+		}
+
+		@Override
+		void readPacket(ColumnarRecipe<?> recipe, PacketByteBuf buf, RecipeVarSerializer<?> serializer) {
+			set(recipe, ((RecipeVarSerializer.OfDouble) serializer).readPacketDouble(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			((RecipeVarSerializer.OfDouble) serializer).writePacketDouble(buf, get(recipe));
+		}
+
+		@Override
+		int sizeOf(ColumnarRecipe<?> recipe, RecipeVarSerializer<?> serializer) {
+			return ((RecipeVarSerializer.OfDouble) serializer).sizeOfDouble(get(recipe));
+		}
+	}
+
+	public static final class OfIdentifier extends RecipeColumn {
+
+		/**
+		 * @return The identifier, or null if it was optional and missing
+		 */
+		public Identifier get(ColumnarRecipe<?> recipe) {
+			// Indices are offset by one so that unset rows read as null
+			int index = recipe.arena.getInt(lane, recipe.row);
+			return index == 0 ? null : recipe.arena.identifier(index - 1);
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return Identifier.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return false;
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			recipe.arena.setInt(lane, recipe.row, value == null ? 0 : recipe.arena.indexOf((Identifier) value) + 1);
+		}
+	}
+
+	public static final class OfItem extends RecipeColumn {
+
+		public Item get(ColumnarRecipe<?> recipe) {
+			return Item.byRawId(recipe.arena.getInt(lane, recipe.row));
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return Item.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return false;
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			recipe.arena.setInt(lane, recipe.row, Item.getRawId((Item) value));
+		}
+	}
+
+	public static final class OfStack extends RecipeColumn {
+
+		/**
+		 * @return A new stack of the stored item and count, which the caller is free to modify
+		 */
+		public ItemStack get(ColumnarRecipe<?> recipe) {
+			long packed = recipe.arena.getLong(lane, recipe.row);
+			return new ItemStack(Item.byRawId((int) (packed >>> 32)), (int) packed);
+		}
+
+		@Override
+		Class<?> getValueType() {
+			return ItemStack.class;
+		}
+
+		@Override
+		boolean isWide() {
+			return true;
+		}
+
+		@Override
+		Object getValue(ColumnarRecipe<?> recipe) {
+			return get(recipe);
+		}
+
+		@Override
+		void setValue(ColumnarRecipe<?> recipe, Object value) {
+			ItemStack stack = (ItemStack) value;
+			if (stack.hasTag()) {
+				throw new IllegalArgumentException("Stack columns cannot hold nbt");
+			}
+			long packed = (long) Item.getRawId(stack.getItem()) << 32 | stack.getCount() & 0xFFFFFFFFL;
+			recipe.arena.setLong(lane, recipe.row, packed);
+		}
+	}
+}
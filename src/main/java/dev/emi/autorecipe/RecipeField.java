@@ -0,0 +1,800 @@
+package dev.emi.autorecipe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import com.google.common.collect.Sets;
+import com.google.gson.JsonElement;
+
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.floats.FloatList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.collection.DefaultedList;
+
+/**
+ * A precompiled {@link RecipeVar} field, with its path, serializers and accessors resolved once per recipe class
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+abstract class RecipeField {
+	final Field field;
+	final boolean required;
+	final boolean key;
+	final boolean immutable;
+	final String[] path;
+	final MethodHandle getter;
+	final MethodHandle setter;
+
+	RecipeField(Field field, RecipeVar var) {
+		this(field, var, Object.class);
+	}
+
+	/**
+	 * @param accessType The type the accessors are adapted to, either {@link Object} or the field's primitive type
+	 */
+	RecipeField(Field field, RecipeVar var, Class<?> accessType) {
+		this.field = field;
+		this.required = var.required();
+		this.key = var.key();
+		this.immutable = var.immutable();
+		this.path = var.value().split("/");
+		if (Modifier.isStatic(field.getModifiers())) {
+			// Column values live in the recipe's arena, see ColumnField
+			getter = null;
+			setter = null;
+			return;
+		}
+		try {
+			field.setAccessible(true);
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			getter = lookup.unreflectGetter(field).asType(MethodType.methodType(accessType, Object.class));
+			setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, accessType));
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Cannot access recipe field " + field.getName(), e);
+		}
+	}
+
+	RecipeField(RecipeField other) {
+		this.field = other.field;
+		this.required = other.required;
+		this.key = other.key;
+		this.immutable = other.immutable;
+		this.path = other.path;
+		this.getter = other.getter;
+		this.setter = other.setter;
+	}
+
+	/**
+	 * @return A description of the field's type, path and serializers, changing whenever its encoding could
+	 */
+	String layout() {
+		return field.getName() + ":" + field.getGenericType().getTypeName() + "@" + String.join("/", path) + (required ? "!" : "?");
+	}
+
+	static String layout(Object serializer) {
+		return serializer == null ? "null" : serializer.getClass().getName();
+	}
+
+	/**
+	 * @return The decoded collection, or an unmodifiable copy of it for {@link RecipeVar#immutable} fields
+	 */
+	Object finish(Object value) {
+		return immutable ? RecipeCodecs.immutable(value) : value;
+	}
+
+	abstract void readJson(Object recipe, JsonElement element);
+
+	abstract void readPacket(Object recipe, PacketByteBuf buf);
+
+	abstract void write(PacketByteBuf buf, Object recipe);
+
+	/**
+	 * @return The number of bytes {@link #write} writes for this field of a recipe
+	 */
+	abstract int sizeOf(Object recipe);
+
+	Object get(Object recipe) {
+		try {
+			return (Object) getter.invokeExact(recipe);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	void set(Object recipe, Object value) {
+		try {
+			setter.invokeExact(recipe, value);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	/**
+	 * Resolves the serializers and factories for a field, which can then be reused for every recipe of its class
+	 */
+	static RecipeField compile(String namespace, Field field, RecipeVar var) {
+		Class<?> fieldType = field.getType();
+		if (Modifier.isStatic(field.getModifiers())) {
+			RecipeColumn column;
+			try {
+				field.setAccessible(true);
+				column = (RecipeColumn) field.get(null);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("Cannot access recipe column " + field.getName(), e);
+			}
+			RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, column.getValueType());
+			return new ColumnField(field, var, column, column.adapt(serializer));
+		} else if (fieldType.isPrimitive()) {
+			RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
+			if (fieldType == int.class && serializer instanceof RecipeVarSerializer.OfInt) {
+				return new IntField(field, var, (RecipeVarSerializer.OfInt) serializer);
+			} else if (fieldType == long.class && serializer instanceof RecipeVarSerializer.OfLong) {
+				return new LongField(field, var, (RecipeVarSerializer.OfLong) serializer);
+			} else if (fieldType == float.class && serializer instanceof RecipeVarSerializer.OfFloat) {
+				return new FloatField(field, var, (RecipeVarSerializer.OfFloat) serializer);
+			} else if (fieldType == double.class && serializer instanceof RecipeVarSerializer.OfDouble) {
+				return new DoubleField(field, var, (RecipeVarSerializer.OfDouble) serializer);
+			}
+			return new ValueField(field, var, serializer);
+		} else if (fieldType == List.class || fieldType == Set.class || fieldType == DefaultedList.class) {
+			Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+			RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
+			if (fieldType == List.class) {
+				return new CollectionField(field, var, serializer, i -> new ArrayList(i), i -> new ArrayList(i));
+			} else if (fieldType == Set.class) {
+				return new CollectionField(field, var, serializer, Sets::newHashSetWithExpectedSize, Sets::newHashSetWithExpectedSize);
+			} else {
+				return new CollectionField(field, var, serializer, i -> DefaultedList.of(), i -> DefaultedList.of());
+			}
+		} else if (fieldType == Map.class) {
+			Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
+			Class<?> stringType = (Class<?>) types[0];
+			Class<?> genericType = (Class<?>) types[1];
+			RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
+			return new MapField(field, var, serializer, keyFactory(field, stringType));
+		} else if (FastutilCodecs.isList(fieldType) || FastutilCodecs.isMap(fieldType)) {
+			return compileFastutil(namespace, field, var);
+		} else {
+			return new ValueField(field, var, AutoRecipeRegistry.getVariableSerializer(namespace, fieldType));
+		}
+	}
+
+	private static RecipeField compileFastutil(String namespace, Field field, RecipeVar var) {
+		Class<?> fieldType = field.getType();
+		Class<?> elementType = FastutilCodecs.elementType(fieldType);
+		RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, elementType);
+		if (FastutilCodecs.isList(fieldType)) {
+			if (elementType == int.class) {
+				RecipeVarSerializer.OfInt s = FastutilCodecs.ofInt(serializer);
+				return new PrimitiveCollectionField(field, var, s,
+					el -> FastutilCodecs.readIntList(el, s),
+					buf -> FastutilCodecs.readIntList(buf, s),
+					(buf, v) -> FastutilCodecs.writeIntList(buf, (IntList) v, s),
+					v -> FastutilCodecs.sizeOfIntList((IntList) v, s));
+			} else if (elementType == long.class) {
+				RecipeVarSerializer.OfLong s = FastutilCodecs.ofLong(serializer);
+				return new PrimitiveCollectionField(field, var, s,
+					el -> FastutilCodecs.readLongList(el, s),
+					buf -> FastutilCodecs.readLongList(buf, s),
+					(buf, v) -> FastutilCodecs.writeLongList(buf, (LongList) v, s),
+					v -> FastutilCodecs.sizeOfLongList((LongList) v, s));
+			} else if (elementType == float.class) {
+				RecipeVarSerializer.OfFloat s = FastutilCodecs.ofFloat(serializer);
+				return new PrimitiveCollectionField(field, var, s,
+					el -> FastutilCodecs.readFloatList(el, s),
+					buf -> FastutilCodecs.readFloatList(buf, s),
+					(buf, v) -> FastutilCodecs.writeFloatList(buf, (FloatList) v, s),
+					v -> FastutilCodecs.sizeOfFloatList((FloatList) v, s));
+			} else {
+				RecipeVarSerializer.OfDouble s = FastutilCodecs.ofDouble(serializer);
+				return new PrimitiveCollectionField(field, var, s,
+					el -> FastutilCodecs.readDoubleList(el, s),
+					buf -> FastutilCodecs.readDoubleList(buf, s),
+					(buf, v) -> FastutilCodecs.writeDoubleList(buf, (DoubleList) v, s),
+					v -> FastutilCodecs.sizeOfDoubleList((DoubleList) v, s));
+			}
+		}
+		Class<?> stringType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+		Function<String, Object> keys = keyFactory(field, stringType);
+		if (elementType == int.class) {
+			RecipeVarSerializer.OfInt s = FastutilCodecs.ofInt(serializer);
+			return new PrimitiveCollectionField(field, var, s,
+				el -> FastutilCodecs.readIntMap(el, s, keys),
+				buf -> FastutilCodecs.readIntMap(buf, s, keys),
+				(buf, v) -> FastutilCodecs.writeIntMap(buf, (Object2IntMap) v, s),
+				v -> FastutilCodecs.sizeOfIntMap((Object2IntMap) v, s));
+		} else if (elementType == long.class) {
+			RecipeVarSerializer.OfLong s = FastutilCodecs.ofLong(serializer);
+			return new PrimitiveCollectionField(field, var, s,
+				el -> FastutilCodecs.readLongMap(el, s, keys),
+				buf -> FastutilCodecs.readLongMap(buf, s, keys),
+				(buf, v) -> FastutilCodecs.writeLongMap(buf, (Object2LongMap) v, s),
+				v -> FastutilCodecs.sizeOfLongMap((Object2LongMap) v, s));
+		} else if (elementType == float.class) {
+			RecipeVarSerializer.OfFloat s = FastutilCodecs.ofFloat(serializer);
+			return new PrimitiveCollectionField(field, var, s,
+				el -> FastutilCodecs.readFloatMap(el, s, keys),
+				buf -> FastutilCodecs.readFloatMap(buf, s, keys),
+				(buf, v) -> FastutilCodecs.writeFloatMap(buf, (Object2FloatMap) v, s),
+				v -> FastutilCodecs.sizeOfFloatMap((Object2FloatMap) v, s));
+		} else {
+			RecipeVarSerializer.OfDouble s = FastutilCodecs.ofDouble(serializer);
+			return new PrimitiveCollectionField(field, var, s,
+				el -> FastutilCodecs.readDoubleMap(el, s, keys),
+				buf -> FastutilCodecs.readDoubleMap(buf, s, keys),
+				(buf, v) -> FastutilCodecs.writeDoubleMap(buf, (Object2DoubleMap) v, s),
+				v -> FastutilCodecs.sizeOfDoubleMap((Object2DoubleMap) v, s));
+		}
+	}
+
+	private static Function<String, Object> keyFactory(Field field, Class<?> stringType) {
+		if (stringType == String.class) {
+			return s -> s;
+		}
+		MethodHandle constructor;
+		try {
+			constructor = MethodHandles.publicLookup().findConstructor(stringType, MethodType.methodType(void.class, String.class))
+				.asType(MethodType.methodType(Object.class, String.class));
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Map key for field " + field.getName() + " cannot be constructed from a string", e);
+		}
+		return s -> {
+			try {
+				return (Object) constructor.invokeExact(s);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		};
+	}
+
+	static class ValueField extends RecipeField {
+		private final RecipeVarSerializer<Object> serializer;
+
+		ValueField(Field field, RecipeVar var, RecipeVarSerializer<?> serializer) {
+			super(field, var);
+			this.serializer = (RecipeVarSerializer<Object>) serializer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, RecipeInterner.intern(serializer.readJson(element)));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, RecipeInterner.intern(serializer.readPacket(buf)));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			serializer.writePacket(buf, get(recipe));
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return serializer.sizeOf(get(recipe));
+		}
+	}
+
+	static class IntField extends RecipeField {
+		private final RecipeVarSerializer.OfInt serializer;
+
+		IntField(Field field, RecipeVar var, RecipeVarSerializer.OfInt serializer) {
+			super(field, var, int.class);
+			this.serializer = serializer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, serializer.readJsonInt(element));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, serializer.readPacketInt(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			serializer.writePacketInt(buf, getInt(recipe));
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return serializer.sizeOfInt(getInt(recipe));
+		}
+
+		@Override
+		Object get(Object recipe) {
+			return getInt(recipe);
+		}
+
+		@Override
+		void set(Object recipe, Object value) {
+			set(recipe, ((Number) value).intValue());
+		}
+
+		private int getInt(Object recipe) {
+			try {
+				return (int) getter.invokeExact(recipe);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+
+		private void set(Object recipe, int value) {
+			try {
+				setter.invokeExact(recipe, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+	}
+
+	static class LongField extends RecipeField {
+		private final RecipeVarSerializer.OfLong serializer;
+
+		LongField(Field field, RecipeVar var, RecipeVarSerializer.OfLong serializer) {
+			super(field, var, long.class);
+			this.serializer = serializer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, serializer.readJsonLong(element));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, serializer.readPacketLong(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			serializer.writePacketLong(buf, getLong(recipe));
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return serializer.sizeOfLong(getLong(recipe));
+		}
+
+		@Override
+		Object get(Object recipe) {
+			return getLong(recipe);
+		}
+
+		@Override
+		void set(Object recipe, Object value) {
+			set(recipe, ((Number) value).longValue());
+		}
+
+		private long getLong(Object recipe) {
+			try {
+				return (long) getter.invokeExact(recipe);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+
+		private void set(Object recipe, long value) {
+			try {
+				setter.invokeExact(recipe, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+	}
+
+	static class FloatField extends RecipeField {
+		private final RecipeVarSerializer.OfFloat serializer;
+
+		FloatField(Field field, RecipeVar var, RecipeVarSerializer.OfFloat serializer) {
+			super(field, var, float.class);
+			this.serializer = serializer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, serializer.readJsonFloat(element));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, serializer.readPacketFloat(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			serializer.writePacketFloat(buf, getFloat(recipe));
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return serializer.sizeOfFloat(getFloat(recipe));
+		}
+
+		@Override
+		Object get(Object recipe) {
+			return getFloat(recipe);
+		}
+
+		@Override
+		void set(Object recipe, Object value) {
+			set(recipe, ((Number) value).floatValue());
+		}
+
+		private float getFloat(Object recipe) {
+			try {
+				return (float) getter.invokeExact(recipe);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+
+		private void set(Object recipe, float value) {
+			try {
+				setter.invokeExact(recipe, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+	}
+
+	static class DoubleField extends RecipeField {
+		private final RecipeVarSerializer.OfDouble serializer;
+
+		DoubleField(Field field, RecipeVar var, RecipeVarSerializer.OfDouble serializer) {
+			super(field, var, double.class);
+			this.serializer = serializer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, serializer.readJsonDouble(element));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, serializer.readPacketDouble(buf));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			serializer.writePacketDouble(buf, getDouble(recipe));
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return serializer.sizeOfDouble(getDouble(recipe));
+		}
+
+		@Override
+		Object get(Object recipe) {
+			return getDouble(recipe);
+		}
+
+		@Override
+		void set(Object recipe, Object value) {
+			set(recipe, ((Number) value).doubleValue());
+		}
+
+		private double getDouble(Object recipe) {
+			try {
+				return (double) getter.invokeExact(recipe);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+
+		private void set(Object recipe, double value) {
+			try {
+				setter.invokeExact(recipe, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+	}
+
+	static class CollectionField extends RecipeField {
+		private final RecipeVarSerializer<Object> serializer;
+		private final IntFunction<Collection> jsonFactory;
+		private final IntFunction<Collection> packetFactory;
+
+		CollectionField(Field field, RecipeVar var, RecipeVarSerializer<?> serializer, IntFunction<Collection> jsonFactory,
+				IntFunction<Collection> packetFactory) {
+			super(field, var);
+			this.serializer = (RecipeVarSerializer<Object>) serializer;
+			this.jsonFactory = jsonFactory;
+			this.packetFactory = packetFactory;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, finish(RecipeCodecs.readCollection(element, serializer, jsonFactory)));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, finish(RecipeCodecs.readCollection(buf, serializer, packetFactory)));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			RecipeCodecs.writeCollection(buf, (Collection<Object>) get(recipe), serializer);
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return RecipeCodecs.sizeOfCollection((Collection<Object>) get(recipe), serializer);
+		}
+	}
+
+	static class MapField extends RecipeField {
+		private final RecipeVarSerializer<Object> serializer;
+		private final Function<String, Object> keyFactory;
+
+		MapField(Field field, RecipeVar var, RecipeVarSerializer<?> serializer, Function<String, Object> keyFactory) {
+			super(field, var);
+			this.serializer = (RecipeVarSerializer<Object>) serializer;
+			this.keyFactory = keyFactory;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, finish(RecipeCodecs.readMap(element, serializer, keyFactory)));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, finish(RecipeCodecs.readMap(buf, serializer, keyFactory)));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			RecipeCodecs.writeMap(buf, (Map<Object, Object>) get(recipe), serializer);
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return RecipeCodecs.sizeOfMap((Map<Object, Object>) get(recipe), serializer);
+		}
+	}
+
+	/**
+	 * A fastutil list or map field, decoded through a primitive element serializer
+	 */
+	static class PrimitiveCollectionField extends RecipeField {
+		private final RecipeVarSerializer<?> serializer;
+		private final Function<JsonElement, Object> jsonReader;
+		private final Function<PacketByteBuf, Object> packetReader;
+		private final BiConsumer<PacketByteBuf, Object> writer;
+		private final ToIntFunction<Object> sizer;
+
+		PrimitiveCollectionField(Field field, RecipeVar var, RecipeVarSerializer<?> serializer,
+				Function<JsonElement, Object> jsonReader, Function<PacketByteBuf, Object> packetReader,
+				BiConsumer<PacketByteBuf, Object> writer, ToIntFunction<Object> sizer) {
+			super(field, var);
+			this.serializer = serializer;
+			this.jsonReader = jsonReader;
+			this.packetReader = packetReader;
+			this.writer = writer;
+			this.sizer = sizer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			set(recipe, finish(jsonReader.apply(element)));
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			set(recipe, finish(packetReader.apply(buf)));
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			writer.accept(buf, get(recipe));
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return sizer.applyAsInt(get(recipe));
+		}
+	}
+
+	/**
+	 * A {@link RecipeColumn} of a {@link ColumnarRecipe}, decoding straight into the recipe's arena row
+	 */
+	static class ColumnField extends RecipeField {
+		final RecipeColumn column;
+		private final RecipeVarSerializer<?> serializer;
+
+		ColumnField(Field field, RecipeVar var, RecipeColumn column, RecipeVarSerializer<?> serializer) {
+			super(field, var);
+			this.column = column;
+			this.serializer = serializer;
+		}
+
+		@Override
+		String layout() {
+			return super.layout() + "=" + layout(serializer);
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			column.readJson((ColumnarRecipe<?>) recipe, element, serializer);
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			column.readPacket((ColumnarRecipe<?>) recipe, buf, serializer);
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			column.write(buf, (ColumnarRecipe<?>) recipe, serializer);
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return column.sizeOf((ColumnarRecipe<?>) recipe, serializer);
+		}
+
+		@Override
+		Object get(Object recipe) {
+			return column.getValue((ColumnarRecipe<?>) recipe);
+		}
+
+		@Override
+		void set(Object recipe, Object value) {
+			column.setValue((ColumnarRecipe<?>) recipe, value);
+		}
+	}
+
+	/**
+	 * Records {@link AutoRecipeMetrics} for another field
+	 */
+	static class MeasuredField extends RecipeField {
+		private final RecipeField delegate;
+		private final String name;
+
+		MeasuredField(RecipeField delegate, String name) {
+			super(delegate);
+			this.delegate = delegate;
+			this.name = name;
+		}
+
+		@Override
+		String layout() {
+			return delegate.layout();
+		}
+
+		@Override
+		void readJson(Object recipe, JsonElement element) {
+			long start = System.nanoTime();
+			try {
+				delegate.readJson(recipe, element);
+			} catch (RuntimeException e) {
+				AutoRecipeMetrics.recordFieldFailure(name, AutoRecipeMetrics.Operation.JSON_READ);
+				throw e;
+			}
+			AutoRecipeMetrics.recordField(name, AutoRecipeMetrics.Operation.JSON_READ, System.nanoTime() - start, 0);
+		}
+
+		@Override
+		void readPacket(Object recipe, PacketByteBuf buf) {
+			long start = System.nanoTime();
+			int index = buf.readerIndex();
+			try {
+				delegate.readPacket(recipe, buf);
+			} catch (RuntimeException e) {
+				AutoRecipeMetrics.recordFieldFailure(name, AutoRecipeMetrics.Operation.PACKET_READ);
+				throw e;
+			}
+			AutoRecipeMetrics.recordField(name, AutoRecipeMetrics.Operation.PACKET_READ, System.nanoTime() - start,
+				buf.readerIndex() - index);
+		}
+
+		@Override
+		void write(PacketByteBuf buf, Object recipe) {
+			long start = System.nanoTime();
+			int index = buf.writerIndex();
+			try {
+				delegate.write(buf, recipe);
+			} catch (RuntimeException e) {
+				AutoRecipeMetrics.recordFieldFailure(name, AutoRecipeMetrics.Operation.PACKET_WRITE);
+				throw e;
+			}
+			AutoRecipeMetrics.recordField(name, AutoRecipeMetrics.Operation.PACKET_WRITE, System.nanoTime() - start,
+				buf.writerIndex() - index);
+		}
+
+		@Override
+		int sizeOf(Object recipe) {
+			return delegate.sizeOf(recipe);
+		}
+	}
+}
@@ -0,0 +1,491 @@
+package dev.emi.autorecipe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.util.Identifier;
+
+/**
+ * Estimates the heap retained by auto serialized recipes, per recipe type and per {@link RecipeVar} field. Sizes are
+ * estimated for a 64 bit jvm with compressed references rather than measured, and nbt and tag contents are not
+ * counted. Values referenced more than once are counted once as shared, while separate but equal values, such as
+ * ingredients or identifiers that interning would merge, are counted as duplicates. Lazy recipes that have not been
+ * loaded are counted without their fields. Spare capacity of java collections is only read on java 8, see
+ * {@link #isCapacityExact}.
+ */
+public final class RecipeFootprint {
+	private static final int HEADER = 12;
+	private static final int REFERENCE = 4;
+	private static final ClassValue<Integer> SHALLOW_SIZES = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			long size = HEADER;
+			for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						size += sizeOfType(field.getType());
+					}
+				}
+			}
+			return (int) align(size);
+		}
+	};
+	// Later jvms warn about or refuse deep reflection into java.base, so collection internals are only read on java 8
+	private static final boolean INTERNALS_READABLE = System.getProperty("java.specification.version", "").startsWith("1.");
+	private static final Field ARRAY_LIST_DATA = internalField(ArrayList.class, "elementData");
+	private static final Field HASH_MAP_TABLE = internalField(HashMap.class, "table");
+	private static final Field HASH_SET_MAP = internalField(HashSet.class, "map");
+
+	private RecipeFootprint() {
+	}
+
+	/**
+	 * Walks recipes, such as all of a recipe manager's {@code values()}, and estimates the footprint of those made by
+	 * auto serializers. Not thread safe with respect to recipes being loaded or replaced during the walk.
+	 */
+	public static List<TypeFootprint> measure(Collection<? extends Recipe<?>> recipes) {
+		Map<AutoRecipeSerializer<?>, TypeWalker> walkers = new LinkedHashMap<>();
+		for (Recipe<?> recipe : recipes) {
+			AutoRecipeSerializer<?> serializer = AutoRecipeRegistry.getRecipeSerializer(recipe.getClass());
+			if (serializer != null) {
+				walkers.computeIfAbsent(serializer, TypeWalker::new).walk(recipe);
+			}
+		}
+		List<TypeFootprint> list = new ArrayList<>();
+		for (TypeWalker walker : walkers.values()) {
+			list.add(walker.finish());
+		}
+		list.sort(Comparator.comparingLong(TypeFootprint::getBytes).reversed());
+		return list;
+	}
+
+	/**
+	 * @return Whether the capacity of java collections can be read, without which only fastutil lists report unused
+	 * slots and other collections are assumed to be full
+	 */
+	public static boolean isCapacityExact() {
+		return ARRAY_LIST_DATA != null && HASH_MAP_TABLE != null && HASH_SET_MAP != null;
+	}
+
+	/**
+	 * @return A human readable report, one line per type and field
+	 */
+	public static List<String> format(List<TypeFootprint> types) {
+		List<String> lines = new ArrayList<>();
+		for (TypeFootprint type : types) {
+			lines.add(String.format("%s: %d recipes, %s (%s recipes, %s columns)%s", type.id, type.recipes,
+				bytes(type.getBytes()), bytes(type.recipeBytes), bytes(type.columnBytes),
+				type.pending > 0 ? ", " + type.pending + " not loaded" : ""));
+			for (FieldFootprint field : type.fields) {
+				lines.add(String.format("  %s: %s in %d instances, %d shared, %d duplicates (%s)%s", field.name,
+					bytes(field.bytes), field.instances, field.shared, field.duplicates, bytes(field.duplicateBytes),
+					field.hasExcessCapacity() ? ", " + field.spareSlots + " unused collection slots" : ""));
+			}
+		}
+		if (!types.isEmpty() && !isCapacityExact()) {
+			lines.add("Java collection capacity cannot be read on this jvm, so only fastutil lists count unused slots");
+		}
+		return lines;
+	}
+
+	private static String bytes(long bytes) {
+		if (bytes < 1024) {
+			return bytes + "B";
+		} else if (bytes < 1024 * 1024) {
+			return String.format("%.1fKiB", bytes / 1024.0);
+		}
+		return String.format("%.1fMiB", bytes / (1024.0 * 1024.0));
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	private static long array(long elementSize, int length) {
+		return align(16 + elementSize * length);
+	}
+
+	private static int sizeOfType(Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		} else if (type == int.class || type == float.class) {
+			return 4;
+		} else if (type == short.class || type == char.class) {
+			return 2;
+		} else if (type == byte.class || type == boolean.class) {
+			return 1;
+		}
+		return REFERENCE;
+	}
+
+	/**
+	 * Collection internals are read for spare capacity where the jvm allows it, and assumed full otherwise
+	 */
+	private static Field internalField(Class<?> clazz, String name) {
+		if (!INTERNALS_READABLE) {
+			return null;
+		}
+		try {
+			Field field = clazz.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		} catch (NoSuchFieldException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static int length(Field field, Object owner) {
+		try {
+			Object array = field.get(owner);
+			return array == null ? 0 : java.lang.reflect.Array.getLength(array);
+		} catch (IllegalAccessException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return The number of element slots a collection or map has allocated, or -1 if it cannot be read
+	 */
+	private static int capacityOf(Object value) {
+		if (value instanceof IntArrayList) {
+			return ((IntArrayList) value).elements().length;
+		} else if (value instanceof LongArrayList) {
+			return ((LongArrayList) value).elements().length;
+		} else if (value instanceof FloatArrayList) {
+			return ((FloatArrayList) value).elements().length;
+		} else if (value instanceof DoubleArrayList) {
+			return ((DoubleArrayList) value).elements().length;
+		} else if (value instanceof ArrayList && ARRAY_LIST_DATA != null) {
+			return length(ARRAY_LIST_DATA, value);
+		} else if (value instanceof HashMap && HASH_MAP_TABLE != null) {
+			// Tables are sized for a 0.75 load factor, so only slots beyond that are spare
+			int table = length(HASH_MAP_TABLE, value);
+			return table == -1 ? -1 : (int) (table * 0.75f);
+		} else if (value instanceof HashSet && HASH_SET_MAP != null) {
+			try {
+				return capacityOf(HASH_SET_MAP.get(value));
+			} catch (IllegalAccessException e) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The estimated size of a value itself, without any values it contains that are walked separately
+	 */
+	private static long shallowSize(Object value) {
+		if (value instanceof String) {
+			return 24 + array(1, ((String) value).length());
+		} else if (value instanceof Identifier) {
+			Identifier id = (Identifier) value;
+			return shallowSize(Identifier.class) + shallowSize(id.getNamespace()) + shallowSize(id.getPath());
+		} else if (value instanceof Ingredient) {
+			// Each entry resolves to at least one stack, held in the entry array and the cached stack array
+			JsonElement json;
+			try {
+				json = ((Ingredient) value).toJson();
+			} catch (RuntimeException e) {
+				json = null;
+			}
+			int entries = json instanceof JsonArray ? ((JsonArray) json).size() : 1;
+			return shallowSize(Ingredient.class) + array(REFERENCE, entries) * 2 + entries * (16 + shallowSize(ItemStack.class));
+		} else if (value instanceof IntArrayList || value instanceof FloatArrayList) {
+			return shallowSize(value.getClass()) + array(4, capacityOf(value));
+		} else if (value instanceof LongArrayList || value instanceof DoubleArrayList) {
+			return shallowSize(value.getClass()) + array(8, capacityOf(value));
+		} else if (value instanceof Collection) {
+			int capacity = Math.max(capacityOf(value), ((Collection<?>) value).size());
+			// Hash sets hold a map with a node per element
+			if (value instanceof HashSet) {
+				return shallowSize(value.getClass()) + 48 + array(REFERENCE, capacity * 4 / 3) + 32L * ((Collection<?>) value).size();
+			}
+			return shallowSize(value.getClass()) + array(REFERENCE, capacity);
+		} else if (value instanceof Map) {
+			int size = ((Map<?, ?>) value).size();
+			int capacity = Math.max(capacityOf(value), size);
+			return shallowSize(value.getClass()) + array(REFERENCE, capacity * 4 / 3) + 32L * size;
+		}
+		return shallowSize(value.getClass());
+	}
+
+	private static long shallowSize(Class<?> clazz) {
+		return SHALLOW_SIZES.get(clazz);
+	}
+
+	/**
+	 * Accumulates the footprint of one recipe type as its recipes are walked
+	 */
+	private static class TypeWalker {
+		private final AutoRecipeSerializer<?> serializer;
+		private final RecipeField[] fields;
+		private final FieldWalker[] fieldWalkers;
+		private final Map<Object, Boolean> seen = new IdentityHashMap<>();
+		private final Set<Object> keys = new HashSet<>();
+		private final Set<RecipeArena> arenas = Collections.newSetFromMap(new IdentityHashMap<>());
+		private int recipes, pending;
+		private long recipeBytes;
+
+		private TypeWalker(AutoRecipeSerializer<?> serializer) {
+			this.serializer = serializer;
+			this.fields = serializer.getFields();
+			this.fieldWalkers = new FieldWalker[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				fieldWalkers[i] = new FieldWalker(fields[i].field.getName());
+			}
+		}
+
+		private void walk(Recipe<?> recipe) {
+			recipes++;
+			recipeBytes += shallowSize(recipe.getClass());
+			if (recipe instanceof ColumnarRecipe) {
+				arenas.add(((ColumnarRecipe<?>) recipe).arena);
+			}
+			if (recipe instanceof AutoSerializedRecipe && ((AutoSerializedRecipe<?>) recipe).pendingLoad != null) {
+				pending++;
+				return;
+			}
+			for (int i = 0; i < fields.length; i++) {
+				// Column values live in the arena, which is counted as a whole, and primitives in the recipe itself
+				if (!(fields[i] instanceof RecipeField.ColumnField) && !fields[i].field.getType().isPrimitive()) {
+					visit(fieldWalkers[i], fields[i].get(recipe));
+				}
+			}
+		}
+
+		private void visit(FieldWalker field, Object value) {
+			if (value == null || value instanceof Item || value instanceof Block) {
+				// Registry entries are shared by the game, not retained by recipes
+				return;
+			}
+			if (seen.put(value, Boolean.TRUE) != null) {
+				field.shared++;
+				return;
+			}
+			long size = shallowSize(value);
+			field.instances++;
+			field.bytes += size;
+			Object key = RecipeInterner.keyOf(value);
+			if (key != null && !keys.add(key)) {
+				field.duplicates++;
+				field.duplicateBytes += size;
+			}
+			if (value instanceof Collection) {
+				int capacity = capacityOf(value);
+				int count = ((Collection<?>) value).size();
+				if (capacity > count) {
+					field.spareSlots += capacity - count;
+				}
+				field.slots += Math.max(capacity, count);
+				if (!(value instanceof IntArrayList || value instanceof LongArrayList || value instanceof FloatArrayList
+						|| value instanceof DoubleArrayList)) {
+					for (Object element : (Collection<?>) value) {
+						visit(field, element);
+					}
+				}
+			} else if (value instanceof Map) {
+				int capacity = capacityOf(value);
+				int count = ((Map<?, ?>) value).size();
+				if (capacity > count) {
+					field.spareSlots += capacity - count;
+				}
+				field.slots += Math.max(capacity, count);
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+					visit(field, entry.getKey());
+					visit(field, entry.getValue());
+				}
+			}
+		}
+
+		private TypeFootprint finish() {
+			long columnBytes = 0;
+			for (RecipeArena arena : arenas) {
+				columnBytes += arena.getAllocatedBytes();
+			}
+			List<FieldFootprint> list = new ArrayList<>();
+			for (FieldWalker walker : fieldWalkers) {
+				list.add(new FieldFootprint(walker));
+			}
+			list.sort(Comparator.comparingLong(FieldFootprint::getBytes).reversed());
+			return new TypeFootprint(serializer.getId(), recipes, pending, recipeBytes, columnBytes, list);
+		}
+	}
+
+	private static class FieldWalker {
+		private final String name;
+		private long bytes, duplicateBytes;
+		private int instances, shared, duplicates;
+		private long slots, spareSlots;
+
+		private FieldWalker(String name) {
+			this.name = name;
+		}
+	}
+
+	public static class TypeFootprint {
+		private final Identifier id;
+		private final int recipes;
+		private final int pending;
+		private final long recipeBytes;
+		private final long columnBytes;
+		private final List<FieldFootprint> fields;
+
+		private TypeFootprint(Identifier id, int recipes, int pending, long recipeBytes, long columnBytes,
+				List<FieldFootprint> fields) {
+			this.id = id;
+			this.recipes = recipes;
+			this.pending = pending;
+			this.recipeBytes = recipeBytes;
+			this.columnBytes = columnBytes;
+			this.fields = Collections.unmodifiableList(fields);
+		}
+
+		/**
+		 * @return The recipe type, by its serializer id
+		 */
+		public Identifier getId() {
+			return id;
+		}
+
+		public int getRecipes() {
+			return recipes;
+		}
+
+		/**
+		 * @return The number of lazy recipes that have not been loaded, whose fields are not counted
+		 */
+		public int getPending() {
+			return pending;
+		}
+
+		/**
+		 * @return The estimated bytes of the recipe objects themselves
+		 */
+		public long getRecipeBytes() {
+			return recipeBytes;
+		}
+
+		/**
+		 * @return The bytes of the column arenas the recipes are stored in, for {@link ColumnarRecipe} types
+		 */
+		public long getColumnBytes() {
+			return columnBytes;
+		}
+
+		/**
+		 * @return The fields of the type, largest first
+		 */
+		public List<FieldFootprint> getFields() {
+			return fields;
+		}
+
+		/**
+		 * @return The estimated total bytes retained by the type's recipes
+		 */
+		public long getBytes() {
+			long bytes = recipeBytes + columnBytes;
+			for (FieldFootprint field : fields) {
+				bytes += field.bytes;
+			}
+			return bytes;
+		}
+	}
+
+	public static class FieldFootprint {
+		private final String name;
+		private final long bytes;
+		private final int instances;
+		private final int shared;
+		private final int duplicates;
+		private final long duplicateBytes;
+		private final long slots;
+		private final long spareSlots;
+
+		private FieldFootprint(FieldWalker walker) {
+			this.name = walker.name;
+			this.bytes = walker.bytes;
+			this.instances = walker.instances;
+			this.shared = walker.shared;
+			this.duplicates = walker.duplicates;
+			this.duplicateBytes = walker.duplicateBytes;
+			this.slots = walker.slots;
+			this.spareSlots = walker.spareSlots;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The estimated bytes of the field's values and everything they contain, counting shared values once
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return The number of distinct value objects, including collection elements and map entries
+		 */
+		public int getInstances() {
+			return instances;
+		}
+
+		/**
+		 * @return The number of references to a value already counted, such as from interning
+		 */
+		public int getShared() {
+			return shared;
+		}
+
+		/**
+		 * @return The number of values equal to another value of the type but not the same object
+		 */
+		public int getDuplicates() {
+			return duplicates;
+		}
+
+		/**
+		 * @return The estimated bytes interning the duplicate values would save
+		 */
+		public long getDuplicateBytes() {
+			return duplicateBytes;
+		}
+
+		/**
+		 * @return The number of allocated but unused slots in the field's collections and maps, when they can be read
+		 */
+		public long getSpareSlots() {
+			return spareSlots;
+		}
+
+		/**
+		 * @return Whether over half of the slots allocated by the field's collections and maps are unused
+		 */
+		public boolean hasExcessCapacity() {
+			return spareSlots * 2 > slots;
+		}
+	}
+}
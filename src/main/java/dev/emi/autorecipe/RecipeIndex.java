@@ -0,0 +1,188 @@
+package dev.emi.autorecipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.block.Block;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.RecipeType;
+import net.minecraft.world.World;
+
+/**
+ * An inverted index from items and blocks to the recipes of a type whose {@code key} fields contain them, built
+ * lazily from a recipe manager's recipes and discarded whenever they change. Recipes without key fields, or with
+ * a key that matches nothing, are candidates for every lookup.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class RecipeIndex<T extends Recipe<?>> {
+	private static final int MATCH_CACHE_SIZE = 1024;
+	private static final Cache<RecipeManager, Map<RecipeType<?>, RecipeIndex<?>>> INDEXES = CacheBuilder.newBuilder().weakKeys()
+		.build();
+	static volatile boolean matchCacheEnabled;
+	private final List<T> recipes;
+	private final Map<Item, BitSet> byItem = new HashMap<>();
+	private final Map<Block, BitSet> byBlock = new HashMap<>();
+	private final BitSet wildcards = new BitSet();
+	private final Cache<List<Item>, T> lastMatches = CacheBuilder.newBuilder().maximumSize(MATCH_CACHE_SIZE).build();
+
+	private RecipeIndex(List<T> recipes) {
+		this.recipes = recipes;
+		for (int i = 0; i < recipes.size(); i++) {
+			T recipe = recipes.get(i);
+			AutoRecipeSerializer<?> serializer = AutoRecipeRegistry.getRecipeSerializer(recipe.getClass());
+			RecipeField[] keys = serializer == null ? null : serializer.getKeyFields();
+			if (keys == null || keys.length == 0) {
+				wildcards.set(i);
+				continue;
+			}
+			if (recipe instanceof AutoSerializedRecipe) {
+				((AutoSerializedRecipe) recipe).ensureLoaded();
+			}
+			for (RecipeField field : keys) {
+				if (!add(field.get(recipe), i)) {
+					wildcards.set(i);
+				}
+			}
+		}
+	}
+
+	static <T extends Recipe<?>> RecipeIndex<T> get(RecipeManager manager, RecipeType<T> type) {
+		Map<RecipeType<?>, RecipeIndex<?>> indexes;
+		try {
+			indexes = INDEXES.get(manager, ConcurrentHashMap::new);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		RecipeIndex<T> index = (RecipeIndex<T>) indexes.get(type);
+		if (index == null) {
+			index = new RecipeIndex<>((List<T>) (List) manager.listAllOfType((RecipeType) type));
+			indexes.put(type, index);
+		}
+		return index;
+	}
+
+	static void invalidate(RecipeManager manager) {
+		INDEXES.invalidate(manager);
+	}
+
+	/**
+	 * @return Whether the value contributed at least one key
+	 */
+	private boolean add(Object value, int recipe) {
+		if (value instanceof Ingredient) {
+			IntList ids = ((Ingredient) value).getMatchingItemIds();
+			for (int j = 0; j < ids.size(); j++) {
+				addItem(Item.byRawId(ids.getInt(j)), recipe);
+			}
+			return !ids.isEmpty();
+		} else if (value instanceof ItemStack) {
+			ItemStack stack = (ItemStack) value;
+			if (stack.isEmpty()) {
+				return false;
+			}
+			addItem(stack.getItem(), recipe);
+			return true;
+		} else if (value instanceof Item) {
+			if (value == Items.AIR) {
+				return false;
+			}
+			addItem((Item) value, recipe);
+			return true;
+		} else if (value instanceof Block) {
+			byBlock.computeIfAbsent((Block) value, b -> new BitSet()).set(recipe);
+			addItem(((Block) value).asItem(), recipe);
+			return true;
+		} else if (value instanceof Collection) {
+			boolean added = false;
+			for (Object o : (Collection<?>) value) {
+				// An empty element could match an empty slot, so it has to be a wildcard
+				if (!add(o, recipe)) {
+					return false;
+				}
+				added = true;
+			}
+			return added;
+		}
+		return false;
+	}
+
+	private void addItem(Item item, int recipe) {
+		byItem.computeIfAbsent(item, i -> new BitSet()).set(recipe);
+	}
+
+	List<T> getRecipes(Item item) {
+		return collect(byItem.get(item));
+	}
+
+	List<T> getRecipes(Block block) {
+		return collect(byBlock.get(block));
+	}
+
+	<C extends Inventory> T getFirstMatch(C inventory, World world) {
+		List<Item> key = null;
+		if (matchCacheEnabled) {
+			Item[] signature = new Item[inventory.size()];
+			for (int i = 0; i < signature.length; i++) {
+				signature[i] = inventory.getStack(i).getItem();
+			}
+			key = Arrays.asList(signature);
+			T last = lastMatches.getIfPresent(key);
+			if (last != null && ((Recipe<C>) last).matches(inventory, world)) {
+				return last;
+			}
+		}
+		BitSet candidates = (BitSet) wildcards.clone();
+		for (int i = 0; i < inventory.size(); i++) {
+			ItemStack stack = inventory.getStack(i);
+			if (!stack.isEmpty()) {
+				BitSet set = byItem.get(stack.getItem());
+				if (set != null) {
+					candidates.or(set);
+				}
+			}
+		}
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			T recipe = recipes.get(i);
+			if (((Recipe<C>) recipe).matches(inventory, world)) {
+				if (key != null) {
+					lastMatches.put(key, recipe);
+				}
+				return recipe;
+			}
+		}
+		return null;
+	}
+
+	private List<T> collect(BitSet set) {
+		BitSet candidates = (BitSet) wildcards.clone();
+		if (set != null) {
+			candidates.or(set);
+		}
+		if (candidates.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<T> list = new ArrayList<>(candidates.cardinality());
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			list.add(recipes.get(i));
+		}
+		return list;
+	}
+}
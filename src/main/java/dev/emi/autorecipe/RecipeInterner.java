@@ -0,0 +1,150 @@
+package dev.emi.autorecipe;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonElement;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.util.Identifier;
+
+/**
+ * Opt-in interning of decoded recipe values, so that identical ingredients, stacks, identifiers and map keys
+ * across recipes share one instance. Values are held weakly and forgotten at the start of each reload.
+ * Interned values are shared between recipes and must not be mutated, so recipes should copy stacks before
+ * handing them out, as vanilla recipes already do in {@code craft}.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class RecipeInterner {
+	private static final Map<Class<?>, TypeInterner> INTERNERS = new ConcurrentHashMap<>();
+	private static volatile boolean enabled;
+
+	private RecipeInterner() {
+	}
+
+	public static void setEnabled(boolean enabled) {
+		RecipeInterner.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Registers a key function for a class, letting values decoded by its variable serializers be interned.
+	 * Values with equal keys are considered interchangeable, so the key must capture everything observable about
+	 * the value, and it must not reference the value itself, which would keep it from ever being dropped. The key
+	 * function may return null to leave a value uninterned. Values are matched by exact class.
+	 */
+	public static <T> void register(Class<T> clazz, Function<? super T, ?> key) {
+		INTERNERS.put(clazz, new TypeInterner((Function<Object, Object>) key));
+	}
+
+	/**
+	 * @return A previously interned value equal to this one by its class's key, or the value itself
+	 */
+	public static <T> T intern(T value) {
+		if (!enabled || value == null) {
+			return value;
+		}
+		TypeInterner interner = INTERNERS.get(value.getClass());
+		if (interner == null) {
+			return value;
+		}
+		return (T) interner.intern(value);
+	}
+
+	/**
+	 * @return The key a value would be interned by together with its class, the value itself for strings and boxed
+	 * primitives, or null if equal values cannot be recognized
+	 */
+	static Object keyOf(Object value) {
+		TypeInterner interner = INTERNERS.get(value.getClass());
+		if (interner != null) {
+			try {
+				Object key = interner.key.apply(value);
+				return key == null ? null : Arrays.asList(value.getClass(), key);
+			} catch (RuntimeException e) {
+				return null;
+			}
+		} else if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+			return value;
+		}
+		return null;
+	}
+
+	/**
+	 * Forgets all interned values, called at the start of each reload
+	 */
+	public static void clear() {
+		for (TypeInterner interner : INTERNERS.values()) {
+			interner.cache.invalidateAll();
+		}
+	}
+
+	private static class TypeInterner {
+		private final Function<Object, Object> key;
+		private final Cache<Object, Object> cache = CacheBuilder.newBuilder().weakValues().build();
+
+		private TypeInterner(Function<Object, Object> key) {
+			this.key = key;
+		}
+
+		private Object intern(Object value) {
+			Object k;
+			try {
+				k = key.apply(value);
+			} catch (RuntimeException e) {
+				return value;
+			}
+			if (k == null) {
+				return value;
+			}
+			try {
+				return cache.get(k, () -> value);
+			} catch (ExecutionException e) {
+				return value;
+			}
+		}
+	}
+
+	private static Object keyOfStack(ItemStack stack) {
+		return Arrays.asList(stack.getItem(), stack.getCount(), stack.getTag());
+	}
+
+	/**
+	 * Ingredients have no equality. Tag ingredients are only resolved once tags are loaded, so they are keyed by their
+	 * json, and tags that cannot be converted back to json are left uninterned. All other ingredients are keyed by
+	 * their stacks, which keeps the counts and nbt of ingredients read from packets that their json leaves out.
+	 */
+	private static Object keyOfIngredient(Ingredient ingredient) {
+		JsonElement json = ingredient.toJson();
+		if (RecipeCache.referencesTag(json)) {
+			return json;
+		}
+		ItemStack[] stacks = AutoRecipeRegistry.getMatchingStacks(ingredient);
+		if (stacks == null) {
+			return null;
+		}
+		Object[] key = new Object[stacks.length];
+		for (int i = 0; i < stacks.length; i++) {
+			key[i] = keyOfStack(stacks[i]);
+		}
+		return Arrays.asList(key);
+	}
+
+	static {
+		register(Identifier.class, Identifier::toString);
+		register(ItemStack.class, RecipeInterner::keyOfStack);
+		register(Ingredient.class, RecipeInterner::keyOfIngredient);
+	}
+}
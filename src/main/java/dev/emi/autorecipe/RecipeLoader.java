@@ -0,0 +1,129 @@
+package dev.emi.autorecipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.RecipeSerializer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.JsonHelper;
+import net.minecraft.util.registry.Registry;
+
+/**
+ * Loads recipes from a datapack directory or zip outside of a resource reload, such as for tooling or tests.
+ * Recipes whose {@code type} is their first member and belongs to an auto serializer are streamed, only building
+ * elements for their fields, while all others are parsed into a tree and read like vanilla does.
+ */
+public final class RecipeLoader {
+	private static final Logger LOG = LogManager.getLogger("autorecipe");
+
+	private RecipeLoader() {
+	}
+
+	/**
+	 * Loads every recipe under {@code data/<namespace>/recipes} in a datapack directory or zip
+	 */
+	public static BulkReadResult<Recipe<?>> load(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			return loadRoot(path);
+		}
+		try (FileSystem fs = FileSystems.newFileSystem(path, (ClassLoader) null)) {
+			return loadRoot(fs.getPath("/"));
+		}
+	}
+
+	/**
+	 * Reads a single recipe file, streaming it when possible
+	 */
+	public static Recipe<?> read(Identifier id, Path file) throws IOException {
+		try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+			reader.beginObject();
+			if (reader.hasNext() && reader.nextName().equals("type")) {
+				Identifier type = new Identifier(reader.nextString());
+				RecipeSerializer<?> serializer = Registry.RECIPE_SERIALIZER.getOrEmpty(type)
+					.orElseThrow(() -> new JsonSyntaxException("Invalid or unsupported recipe type '" + type + "'"));
+				if (serializer instanceof AutoRecipeSerializer) {
+					return ((AutoRecipeSerializer<?>) serializer).readMembers(id, reader);
+				}
+			}
+		}
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return RecipeManager.deserialize(id, JsonHelper.deserialize(reader));
+		}
+	}
+
+	/**
+	 * Finds every recipe file under {@code data/<namespace>/recipes} of a datapack root, such as a directory or the
+	 * root of an opened zip file system, sorted by path within each namespace
+	 */
+	public static Map<Identifier, Path> findRecipes(Path root) throws IOException {
+		Map<Identifier, Path> files = new LinkedHashMap<>();
+		Path data = root.resolve("data");
+		if (!Files.isDirectory(data)) {
+			return files;
+		}
+		try (DirectoryStream<Path> namespaces = Files.newDirectoryStream(data)) {
+			for (Path namespace : namespaces) {
+				Path dir = namespace.resolve("recipes");
+				if (!Files.isDirectory(dir)) {
+					continue;
+				}
+				String ns = namespace.getFileName().toString();
+				if (ns.endsWith("/")) {
+					ns = ns.substring(0, ns.length() - 1);
+				}
+				List<Path> paths;
+				try (Stream<Path> stream = Files.walk(dir)) {
+					paths = stream.filter(p -> p.toString().endsWith(".json") && Files.isRegularFile(p)).sorted()
+						.collect(Collectors.toList());
+				}
+				for (Path file : paths) {
+					String name = dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+					Identifier id;
+					try {
+						id = new Identifier(ns, name.substring(0, name.length() - ".json".length()));
+					} catch (RuntimeException e) {
+						LOG.warn("Skipping recipe file with invalid name " + file, e);
+						continue;
+					}
+					// Matches RecipeManager, which ignores recipes starting with an underscore
+					if (!id.getPath().startsWith("_")) {
+						files.put(id, file);
+					}
+				}
+			}
+		}
+		return files;
+	}
+
+	private static BulkReadResult<Recipe<?>> loadRoot(Path root) throws IOException {
+		Map<Identifier, Recipe<?>> recipes = new LinkedHashMap<>();
+		Map<Identifier, Exception> errors = new LinkedHashMap<>();
+		for (Map.Entry<Identifier, Path> entry : findRecipes(root).entrySet()) {
+			try {
+				recipes.put(entry.getKey(), read(entry.getKey(), entry.getValue()));
+			} catch (Exception e) {
+				errors.put(entry.getKey(), e);
+			}
+		}
+		return new BulkReadResult<>(recipes, errors);
+	}
+}
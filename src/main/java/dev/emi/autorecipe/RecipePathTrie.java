@@ -0,0 +1,55 @@
+package dev.emi.autorecipe;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * A trie of a recipe class's {@code @RecipeVar} paths, used to read only the parts of a json token stream that
+ * fields need. Subtrees at field paths are parsed into elements, everything else is skipped without being built.
+ */
+class RecipePathTrie {
+	private static final JsonParser PARSER = new JsonParser();
+	private final Map<String, RecipePathTrie> children = new HashMap<>();
+	private boolean leaf;
+
+	static RecipePathTrie of(RecipeField[] fields) {
+		RecipePathTrie root = new RecipePathTrie();
+		for (RecipeField field : fields) {
+			RecipePathTrie node = root;
+			for (String part : field.path) {
+				node = node.children.computeIfAbsent(part, k -> new RecipePathTrie());
+			}
+			node.leaf = true;
+		}
+		return root;
+	}
+
+	/**
+	 * Reads the remaining members of an object whose {@code beginObject} has already been consumed, up to but not
+	 * including its {@code endObject}, keeping only members on a field's path
+	 */
+	void readMembers(JsonReader reader, JsonObject into) throws IOException {
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			RecipePathTrie child = children.get(name);
+			if (child == null) {
+				reader.skipValue();
+			} else if (child.leaf || reader.peek() != JsonToken.BEGIN_OBJECT) {
+				// Non-objects on a path are kept so lookups fail the same way they would on the full tree
+				into.add(name, PARSER.parse(reader));
+			} else {
+				JsonObject obj = new JsonObject();
+				reader.beginObject();
+				child.readMembers(reader, obj);
+				reader.endObject();
+				into.add(name, obj);
+			}
+		}
+	}
+}
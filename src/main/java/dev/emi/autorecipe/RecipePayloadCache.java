@@ -0,0 +1,66 @@
+package dev.emi.autorecipe;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.Recipe;
+
+/**
+ * An opt-in in-memory cache of each auto serialized recipe's packet encoding, so that syncing recipes to every
+ * joining player copies bytes instead of running field serializers again. Entries are held by recipe identity, so a
+ * replaced recipe object misses, and the cache is cleared at the start of each reload. Recipes must not be mutated
+ * after they are first written while it is enabled.
+ */
+public final class RecipePayloadCache {
+	private static volatile Cache<Recipe<?>, byte[]> cache;
+	private static volatile long maxBytes;
+
+	private RecipePayloadCache() {
+	}
+
+	/**
+	 * Enables the cache with a bound on the encoded bytes it holds, evicting the least recently used entries
+	 * beyond it, or disables it with 0
+	 */
+	public static void setMaxBytes(long maxBytes) {
+		RecipePayloadCache.maxBytes = maxBytes;
+		cache = maxBytes <= 0 ? null : CacheBuilder.newBuilder().weakKeys().maximumWeight(maxBytes)
+			.weigher((Recipe<?> recipe, byte[] bytes) -> bytes.length).build();
+	}
+
+	public static long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public static boolean isEnabled() {
+		return cache != null;
+	}
+
+	public static void clear() {
+		Cache<Recipe<?>, byte[]> cache = RecipePayloadCache.cache;
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * @return The recipe's cached encoding, or null if it is not cached
+	 */
+	static byte[] get(Recipe<?> recipe) {
+		Cache<Recipe<?>, byte[]> cache = RecipePayloadCache.cache;
+		return cache == null ? null : cache.getIfPresent(recipe);
+	}
+
+	/**
+	 * Caches the encoding of a recipe just written to a buffer from an index
+	 */
+	static void put(Recipe<?> recipe, PacketByteBuf buf, int from) {
+		Cache<Recipe<?>, byte[]> cache = RecipePayloadCache.cache;
+		if (cache != null) {
+			byte[] bytes = new byte[buf.writerIndex() - from];
+			buf.getBytes(from, bytes);
+			cache.put(recipe, bytes);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package dev.emi.autorecipe;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import com.google.gson.JsonObject;
+
+import net.minecraft.recipe.Recipe;
+import net.minecraft.util.Identifier;
+
+/**
+ * Opt-in reuse of recipe instances across reloads, so that recipes whose json has not changed since the previous
+ * reload are returned as they are instead of being decoded and compiled again. Each serializer keeps the recipes of the
+ * last reload by id and a hash of their json, and entries for recipes that were not read again are dropped when the
+ * reload ends. Reused recipes are shared between the old and new recipe manager, so they must not be mutated, and
+ * {@code compile} must only depend on the recipe's own values. Recipes referencing tags are always decoded again, as
+ * tag contents can change without their json changing, and so are {@link ColumnarRecipe}s, whose rows live in the
+ * previous generation's columns.
+ */
+public final class RecipeReuse {
+	private static volatile boolean enabled;
+	private static volatile boolean reloading;
+	private volatile Map<Identifier, Entry> previous = Collections.emptyMap();
+	private volatile Map<Identifier, Entry> current = new ConcurrentHashMap<>();
+
+	RecipeReuse() {
+	}
+
+	public static void setEnabled(boolean enabled) {
+		RecipeReuse.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Forgets all recipes kept for reuse, so that the next reload decodes every recipe
+	 */
+	public static void clear() {
+		for (AutoRecipeSerializer<?> serializer : AutoRecipeRegistry.getRecipeSerializers()) {
+			RecipeReuse reuse = serializer.getReuse();
+			reuse.previous = Collections.emptyMap();
+			reuse.current = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * @return Whether recipes read now can be reused, which is only the case while a server reload is in progress
+	 */
+	static boolean isActive() {
+		return enabled && reloading;
+	}
+
+	static void beginReload() {
+		for (AutoRecipeSerializer<?> serializer : AutoRecipeRegistry.getRecipeSerializers()) {
+			RecipeReuse reuse = serializer.getReuse();
+			if (!reuse.current.isEmpty()) {
+				reuse.previous = reuse.current;
+				reuse.current = new ConcurrentHashMap<>();
+			}
+		}
+		reloading = true;
+	}
+
+	static void endReload() {
+		reloading = false;
+		for (AutoRecipeSerializer<?> serializer : AutoRecipeRegistry.getRecipeSerializers()) {
+			serializer.getReuse().previous = Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * @return The recipe of the previous reload if its json is unchanged, or a recipe freshly read by {@code reader}
+	 */
+	@SuppressWarnings("unchecked")
+	<T extends Recipe<?>> T read(Identifier id, JsonObject json, BiFunction<Identifier, JsonObject, T> reader) {
+		if (RecipeCache.referencesTag(json)) {
+			return reader.apply(id, json);
+		}
+		long hash = RecipeCache.hash(json);
+		Entry entry = previous.get(id);
+		if (entry != null && entry.hash == hash) {
+			current.put(id, entry);
+			RecipeCache cache = RecipeCache.getInstance();
+			if (cache != null) {
+				cache.retain(id);
+			}
+			return (T) entry.recipe;
+		}
+		T t = reader.apply(id, json);
+		current.put(id, new Entry(hash, t));
+		return t;
+	}
+
+	private static class Entry {
+		private final long hash;
+		private final Recipe<?> recipe;
+
+		private Entry(long hash, Recipe<?> recipe) {
+			this.hash = hash;
+			this.recipe = recipe;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package dev.emi.autorecipe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+/**
+ * An optional string table for the recipe sync packet, sending each distinct string once and referencing
+ * it by index afterwards. It is enabled on the server, and the packet records whether it is used, so clients follow
+ * the server's setting. Custom variable serializers can use its read and write methods for their own strings,
+ * which fall back to plain strings outside of the sync packet or when disabled.
+ */
+public final class RecipeStringTable {
+	private static final ThreadLocal<RecipeStringTable> CURRENT = new ThreadLocal<>();
+	private static volatile boolean enabled;
+	private final Object2IntMap<String> indices = new Object2IntOpenHashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final List<Identifier> identifiers = new ArrayList<>();
+
+	private RecipeStringTable() {
+		indices.defaultReturnValue(-1);
+	}
+
+	public static void setEnabled(boolean enabled) {
+		RecipeStringTable.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts a table on this thread when enabled, replacing any table left behind
+	 */
+	public static void begin() {
+		begin(enabled);
+	}
+
+	/**
+	 * Starts a table for the sync packet being read or written on this thread if the packet uses one, called by the
+	 * packet hooks with the mode the packet was written in
+	 */
+	static void begin(boolean active) {
+		if (active) {
+			CURRENT.set(new RecipeStringTable());
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	public static void end() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * @return Whether a table is bound to this thread, making string encodings depend on what was written before them
+	 */
+	static boolean isActive() {
+		return CURRENT.get() != null;
+	}
+
+	/**
+	 * Unbinds the current table so that bytes kept for later decoding use plain strings
+	 * 
+	 * @return The unbound table, to be passed to {@link #resume}
+	 */
+	static RecipeStringTable suspend() {
+		RecipeStringTable table = CURRENT.get();
+		CURRENT.remove();
+		return table;
+	}
+
+	static void resume(RecipeStringTable table) {
+		if (table != null) {
+			CURRENT.set(table);
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Binds a scratch table in place of the current one, so that strings recorded while sizing never reach a table
+	 * that is written with. The scratch table is a copy of the current one, or a new table when sizing a packet of its
+	 * own and the table is enabled.
+	 * 
+	 * @return The table that was bound, to be passed to {@link #resume}
+	 */
+	static RecipeStringTable beginSizing(boolean packet) {
+		RecipeStringTable table = CURRENT.get();
+		RecipeStringTable scratch;
+		if (packet) {
+			scratch = enabled ? new RecipeStringTable() : null;
+		} else {
+			scratch = table == null ? null : table.copy();
+		}
+		if (scratch != null) {
+			CURRENT.set(scratch);
+		} else {
+			CURRENT.remove();
+		}
+		return table;
+	}
+
+	private RecipeStringTable copy() {
+		// Sizing only looks up indices, so the read side is not copied
+		RecipeStringTable copy = new RecipeStringTable();
+		copy.indices.putAll(indices);
+		return copy;
+	}
+
+	public static void writeString(PacketByteBuf buf, String string) {
+		RecipeStringTable table = CURRENT.get();
+		if (table == null) {
+			buf.writeString(string);
+			return;
+		}
+		int index = table.indices.getInt(string);
+		if (index == -1) {
+			table.indices.put(string, table.indices.size());
+			buf.writeVarInt(0);
+			buf.writeString(string);
+		} else {
+			buf.writeVarInt(index + 1);
+		}
+	}
+
+	/**
+	 * @return The number of bytes {@link #writeString} writes for a string. With a table bound, the string is recorded
+	 * as if it were written, so sizing a sequence of strings against a fresh table matches writing them. The library
+	 * only sizes against scratch tables, so this should only be called from {@link RecipeVarSerializer#sizeOf}
+	 */
+	public static int sizeOfString(String string) {
+		int plain = sizeOfPlainString(string);
+		RecipeStringTable table = CURRENT.get();
+		if (table == null) {
+			return plain;
+		}
+		int index = table.indices.getInt(string);
+		if (index == -1) {
+			table.indices.put(string, table.indices.size());
+			return 1 + plain;
+		}
+		return PacketByteBuf.getVarIntSizeBytes(index + 1);
+	}
+
+	public static int sizeOfIdentifier(Identifier id) {
+		return sizeOfString(id.toString());
+	}
+
+	/**
+	 * @return The number of bytes {@code PacketByteBuf.writeString} writes for a string
+	 */
+	static int sizeOfPlainString(String string) {
+		int length = utf8Length(string);
+		return PacketByteBuf.getVarIntSizeBytes(length) + length;
+	}
+
+	private static int utf8Length(String string) {
+		int length = 0;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				// Unpaired surrogates are encoded as '?'
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	public static String readString(PacketByteBuf buf) {
+		RecipeStringTable table = CURRENT.get();
+		if (table == null) {
+			return buf.readString();
+		}
+		return table.strings.get(table.readIndex(buf));
+	}
+
+	public static void writeIdentifier(PacketByteBuf buf, Identifier id) {
+		writeString(buf, id.toString());
+	}
+
+	public static Identifier readIdentifier(PacketByteBuf buf) {
+		RecipeStringTable table = CURRENT.get();
+		if (table == null) {
+			return buf.readIdentifier();
+		}
+		int index = table.readIndex(buf);
+		Identifier id = table.identifiers.get(index);
+		if (id == null) {
+			id = new Identifier(table.strings.get(index));
+			table.identifiers.set(index, id);
+		}
+		return id;
+	}
+
+	private int readIndex(PacketByteBuf buf) {
+		int index = buf.readVarInt();
+		if (index == 0) {
+			strings.add(buf.readString());
+			identifiers.add(null);
+			return strings.size() - 1;
+		}
+		return index - 1;
+	}
+}
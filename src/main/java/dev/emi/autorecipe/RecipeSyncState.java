@@ -0,0 +1,283 @@
+package dev.emi.autorecipe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeSerializer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+/**
+ * Tracks the recipes a single client last received, so that after a reload only added, changed and removed
+ * recipes need to be sent. Recipes are compared by a hash of their serializer's packet encoding.
+ * The delta is written to and read from a buffer, which can be sent over any custom packet channel. Nothing here
+ * replaces vanilla's full recipe sync packet, so callers must cancel it for clients that receive deltas, and should
+ * only do so for clients that announced support, sending others the full packet.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class RecipeSyncState {
+	private static final Cache<Recipe<?>, Long> HASHES = CacheBuilder.newBuilder().weakKeys().build();
+	private final Map<Identifier, Long> sent = new HashMap<>();
+
+	/**
+	 * @return A hash of the recipe's serializer id and packet encoding, cached for as long as the recipe object lives.
+	 * Auto serialized recipes are hashed by their fields alone, so a lazy recipe hashes the same whether it has loaded
+	 * or not, and hashes do not depend on the string table or frames of the packet being written.
+	 */
+	public static long getContentHash(Recipe<?> recipe) {
+		try {
+			return HASHES.get(recipe, () -> {
+				RecipeSerializer serializer = recipe.getSerializer();
+				PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+				buf.writeIdentifier(Registry.RECIPE_SERIALIZER.getId(serializer));
+				if (serializer instanceof AutoRecipeSerializer) {
+					buf.writeBytes(((AutoRecipeSerializer) serializer).encodeContent(recipe));
+				} else {
+					RecipeStringTable table = RecipeStringTable.suspend();
+					try {
+						serializer.write(buf, recipe);
+					} finally {
+						RecipeStringTable.resume(table);
+					}
+				}
+				byte[] bytes = new byte[buf.readableBytes()];
+				buf.readBytes(bytes);
+				return Hashing.murmur3_128().hashBytes(bytes).asLong();
+			});
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error hashing recipe " + recipe.getId(), e.getCause());
+		}
+	}
+
+	/**
+	 * Compares a full recipe set to what this client last received
+	 */
+	public Diff diff(Collection<? extends Recipe<?>> recipes) {
+		List<Recipe<?>> added = new ArrayList<>();
+		List<Recipe<?>> changed = new ArrayList<>();
+		Set<Identifier> removed = new HashSet<>(sent.keySet());
+		Map<Identifier, Long> hashes = new HashMap<>();
+		for (Recipe<?> recipe : recipes) {
+			long hash = getContentHash(recipe);
+			hashes.put(recipe.getId(), hash);
+			removed.remove(recipe.getId());
+			Long previous = sent.get(recipe.getId());
+			if (previous == null) {
+				added.add(recipe);
+			} else if (previous != hash) {
+				changed.add(recipe);
+			}
+		}
+		return new Diff(added, changed, removed, hashes);
+	}
+
+	/**
+	 * Writes a diff and records it as received by this client
+	 */
+	public void writeDelta(PacketByteBuf buf, Diff diff) {
+		buf.writeVarInt(diff.removed.size());
+		for (Identifier id : diff.removed) {
+			buf.writeIdentifier(id);
+		}
+		buf.writeVarInt(diff.added.size() + diff.changed.size());
+		for (Recipe<?> recipe : diff.added) {
+			writeRecipe(buf, recipe);
+		}
+		for (Recipe<?> recipe : diff.changed) {
+			writeRecipe(buf, recipe);
+		}
+		sent.clear();
+		sent.putAll(diff.hashes);
+	}
+
+	/**
+	 * Writes a diff as a series of standalone deltas of at most {@code maxBytes} each where possible, for channels
+	 * with a packet size limit, and records it as received by this client. The first delta carries every removal,
+	 * and a recipe larger than the limit is sent in a delta of its own. Each buffer is allocated at its exact size.
+	 */
+	public List<PacketByteBuf> writeDeltaChunks(Diff diff, int maxBytes) {
+		List<Recipe<?>> recipes = new ArrayList<>(diff.added.size() + diff.changed.size());
+		recipes.addAll(diff.added);
+		recipes.addAll(diff.changed);
+		PacketByteBuf scratch = new PacketByteBuf(Unpooled.buffer());
+		int[] sizes = new int[recipes.size()];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = sizeOfRecipe(recipes.get(i), scratch);
+		}
+		int removedSize = PacketByteBuf.getVarIntSizeBytes(diff.removed.size());
+		for (Identifier id : diff.removed) {
+			removedSize += sizeOfIdentifier(id);
+		}
+		List<PacketByteBuf> chunks = new ArrayList<>();
+		int start = 0;
+		do {
+			int header = chunks.isEmpty() ? removedSize : 1;
+			int size = header;
+			int end = start;
+			while (end < sizes.length) {
+				int next = size + sizes[end] + PacketByteBuf.getVarIntSizeBytes(end - start + 1);
+				if (end > start && next > maxBytes) {
+					break;
+				}
+				size += sizes[end++];
+			}
+			size += PacketByteBuf.getVarIntSizeBytes(end - start);
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(size));
+			if (chunks.isEmpty()) {
+				buf.writeVarInt(diff.removed.size());
+				for (Identifier id : diff.removed) {
+					buf.writeIdentifier(id);
+				}
+			} else {
+				buf.writeVarInt(0);
+			}
+			buf.writeVarInt(end - start);
+			for (int i = start; i < end; i++) {
+				writeRecipe(buf, recipes.get(i));
+			}
+			chunks.add(buf);
+			start = end;
+		} while (start < sizes.length);
+		sent.clear();
+		sent.putAll(diff.hashes);
+		return chunks;
+	}
+
+	/**
+	 * @return The exact size of the vanilla recipe sync packet for these recipes, sized against a fresh
+	 * {@link RecipeStringTable} when it is enabled, used to allocate the packet buffer once
+	 */
+	public static int sizeOfSync(Collection<? extends Recipe<?>> recipes) {
+		PacketByteBuf scratch = new PacketByteBuf(Unpooled.buffer());
+		RecipeStringTable table = RecipeStringTable.beginSizing(true);
+		try {
+			int size = PacketByteBuf.getVarIntSizeBytes(recipes.size());
+			for (Recipe<?> recipe : recipes) {
+				size += sizeOfRecipe(recipe, scratch);
+			}
+			return size;
+		} finally {
+			RecipeStringTable.resume(table);
+		}
+	}
+
+	/**
+	 * @return A lower bound on the size of the vanilla recipe sync packet, counting every recipe's ids but only the
+	 * fields of auto serialized recipes that can be sized without encoding them, used to presize the packet buffer
+	 * without encoding other recipes twice
+	 */
+	public static int presizeOfSync(Collection<? extends Recipe<?>> recipes) {
+		RecipeStringTable table = RecipeStringTable.beginSizing(true);
+		try {
+			int size = PacketByteBuf.getVarIntSizeBytes(recipes.size());
+			for (Recipe<?> recipe : recipes) {
+				RecipeSerializer serializer = recipe.getSerializer();
+				size += sizeOfIdentifier(Registry.RECIPE_SERIALIZER.getId(serializer)) + sizeOfIdentifier(recipe.getId());
+				if (serializer instanceof AutoRecipeSerializer && ((AutoRecipeSerializer) serializer).isSizedExactly()) {
+					size += ((AutoRecipeSerializer) serializer).sizeOfInSequence(recipe);
+				}
+			}
+			return size;
+		} finally {
+			RecipeStringTable.resume(table);
+		}
+	}
+
+	/**
+	 * Sizes a recipe as written by {@link #writeRecipe}, computing it for auto serializers and measuring it in a
+	 * reused scratch buffer for all others
+	 */
+	private static int sizeOfRecipe(Recipe<?> recipe, PacketByteBuf scratch) {
+		RecipeSerializer serializer = recipe.getSerializer();
+		int size = sizeOfIdentifier(Registry.RECIPE_SERIALIZER.getId(serializer)) + sizeOfIdentifier(recipe.getId());
+		if (serializer instanceof AutoRecipeSerializer) {
+			return size + ((AutoRecipeSerializer) serializer).sizeOfInSequence(recipe);
+		}
+		scratch.clear();
+		serializer.write(scratch, recipe);
+		return size + scratch.readableBytes();
+	}
+
+	private static int sizeOfIdentifier(Identifier id) {
+		return RecipeStringTable.sizeOfPlainString(id.toString());
+	}
+
+	/**
+	 * Forgets what this client received, so the next diff contains every recipe
+	 */
+	public void reset() {
+		sent.clear();
+	}
+
+	/**
+	 * Applies a delta written by {@link #writeDelta} to the client's recipes, which can then be passed to
+	 * {@code RecipeManager.setRecipes}
+	 */
+	public static void readDelta(PacketByteBuf buf, Map<Identifier, Recipe<?>> recipes) {
+		int removed = buf.readVarInt();
+		for (int i = 0; i < removed; i++) {
+			recipes.remove(buf.readIdentifier());
+		}
+		int updated = buf.readVarInt();
+		for (int i = 0; i < updated; i++) {
+			Identifier serializerId = buf.readIdentifier();
+			Identifier id = buf.readIdentifier();
+			RecipeSerializer<?> serializer = Registry.RECIPE_SERIALIZER.get(serializerId);
+			if (serializer == null) {
+				throw new IllegalArgumentException("Unknown recipe serializer " + serializerId);
+			}
+			recipes.put(id, serializer.read(id, buf));
+		}
+	}
+
+	private static void writeRecipe(PacketByteBuf buf, Recipe<?> recipe) {
+		RecipeSerializer serializer = recipe.getSerializer();
+		buf.writeIdentifier(Registry.RECIPE_SERIALIZER.getId(serializer));
+		buf.writeIdentifier(recipe.getId());
+		serializer.write(buf, recipe);
+	}
+
+	public static class Diff {
+		private final List<Recipe<?>> added;
+		private final List<Recipe<?>> changed;
+		private final Set<Identifier> removed;
+		private final Map<Identifier, Long> hashes;
+
+		private Diff(List<Recipe<?>> added, List<Recipe<?>> changed, Set<Identifier> removed, Map<Identifier, Long> hashes) {
+			this.added = Collections.unmodifiableList(added);
+			this.changed = Collections.unmodifiableList(changed);
+			this.removed = Collections.unmodifiableSet(removed);
+			this.hashes = hashes;
+		}
+
+		public List<Recipe<?>> getAdded() {
+			return added;
+		}
+
+		public List<Recipe<?>> getChanged() {
+			return changed;
+		}
+
+		public Set<Identifier> getRemoved() {
+			return removed;
+		}
+
+		public boolean isEmpty() {
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+		}
+	}
+}
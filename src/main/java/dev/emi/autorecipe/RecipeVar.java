@@ -10,4 +10,15 @@ import java.lang.annotation.Target;
 public @interface RecipeVar {
 	public String value();
 	public boolean required() default true;
+
+	/**
+	 * Marks an {@code Ingredient}, {@code ItemStack} or {@code Block} field, or a collection of them, as a lookup key
+	 * for {@link AutoRecipeRegistry#getRecipesFor} and {@link AutoRecipeRegistry#getFirstMatch}
+	 */
+	public boolean key() default false;
+
+	/**
+	 * Decodes a collection or map field into an unmodifiable, exactly sized copy. Ignored for {@code DefaultedList}
+	 */
+	public boolean immutable() default false;
 }
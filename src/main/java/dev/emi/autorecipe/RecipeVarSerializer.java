@@ -2,10 +2,153 @@ package dev.emi.autorecipe;
 
 import com.google.gson.JsonElement;
 
+import io.netty.buffer.Unpooled;
 import net.minecraft.network.PacketByteBuf;
 
 public interface RecipeVarSerializer<T> {
 	T readJson(JsonElement element);
 	T readPacket(PacketByteBuf buf);
 	void writePacket(PacketByteBuf buf, T value);
+
+	/**
+	 * @return The number of bytes {@link #writePacket} writes for a value, counting strings against the current
+	 * {@link RecipeStringTable} as if they were written. Measured by writing to a scratch buffer unless overridden
+	 */
+	default int sizeOf(T value) {
+		PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+		writePacket(buf, value);
+		return buf.readableBytes();
+	}
+
+	/**
+	 * A serializer for {@code int} values, used without boxing for primitive fields
+	 */
+	public interface OfInt extends RecipeVarSerializer<Integer> {
+		int readJsonInt(JsonElement element);
+		int readPacketInt(PacketByteBuf buf);
+		void writePacketInt(PacketByteBuf buf, int value);
+
+		default int sizeOfInt(int value) {
+			return RecipeVarSerializer.super.sizeOf(value);
+		}
+
+		@Override
+		default Integer readJson(JsonElement element) {
+			return readJsonInt(element);
+		}
+
+		@Override
+		default Integer readPacket(PacketByteBuf buf) {
+			return readPacketInt(buf);
+		}
+
+		@Override
+		default void writePacket(PacketByteBuf buf, Integer value) {
+			writePacketInt(buf, value);
+		}
+
+		@Override
+		default int sizeOf(Integer value) {
+			return sizeOfInt(value);
+		}
+	}
+
+	/**
+	 * A serializer for {@code long} values, used without boxing for primitive fields
+	 */
+	public interface OfLong extends RecipeVarSerializer<Long> {
+		long readJsonLong(JsonElement element);
+		long readPacketLong(PacketByteBuf buf);
+		void writePacketLong(PacketByteBuf buf, long value);
+
+		default int sizeOfLong(long value) {
+			return RecipeVarSerializer.super.sizeOf(value);
+		}
+
+		@Override
+		default Long readJson(JsonElement element) {
+			return readJsonLong(element);
+		}
+
+		@Override
+		default Long readPacket(PacketByteBuf buf) {
+			return readPacketLong(buf);
+		}
+
+		@Override
+		default void writePacket(PacketByteBuf buf, Long value) {
+			writePacketLong(buf, value);
+		}
+
+		@Override
+		default int sizeOf(Long value) {
+			return sizeOfLong(value);
+		}
+	}
+
+	/**
+	 * A serializer for {@code float} values, used without boxing for primitive fields
+	 */
+	public interface OfFloat extends RecipeVarSerializer<Float> {
+		float readJsonFloat(JsonElement element);
+		float readPacketFloat(PacketByteBuf buf);
+		void writePacketFloat(PacketByteBuf buf, float value);
+
+		default int sizeOfFloat(float value) {
+			return RecipeVarSerializer.super.sizeOf(value);
+		}
+
+		@Override
+		default Float readJson(JsonElement element) {
+			return readJsonFloat(element);
+		}
+
+		@Override
+		default Float readPacket(PacketByteBuf buf) {
+			return readPacketFloat(buf);
+		}
+
+		@Override
+		default void writePacket(PacketByteBuf buf, Float value) {
+			writePacketFloat(buf, value);
+		}
+
+		@Override
+		default int sizeOf(Float value) {
+			return sizeOfFloat(value);
+		}
+	}
+
+	/**
+	 * A serializer for {@code double} values, used without boxing for primitive fields
+	 */
+	public interface OfDouble extends RecipeVarSerializer<Double> {
+		double readJsonDouble(JsonElement element);
+		double readPacketDouble(PacketByteBuf buf);
+		void writePacketDouble(PacketByteBuf buf, double value);
+
+		default int sizeOfDouble(double value) {
+			return RecipeVarSerializer.super.sizeOf(value);
+		}
+
+		@Override
+		default Double readJson(JsonElement element) {
+			return readJsonDouble(element);
+		}
+
+		@Override
+		default Double readPacket(PacketByteBuf buf) {
+			return readPacketDouble(buf);
+		}
+
+		@Override
+		default void writePacket(PacketByteBuf buf, Double value) {
+			writePacketDouble(buf, value);
+		}
+
+		@Override
+		default int sizeOf(Double value) {
+			return sizeOfDouble(value);
+		}
+	}
 }
@@ -0,0 +1,60 @@
+package dev.emi.autorecipe;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A frozen variable serializer table for one namespace, resolving each class against its supertypes once
+ */
+final class SerializerLookup extends ClassValue<RecipeVarSerializer<?>> {
+	private final Map<Class<?>, RecipeVarSerializer<?>> serializers;
+
+	/**
+	 * @param serializers Flattened serializers visible to the namespace, must not be modified afterwards
+	 */
+	SerializerLookup(Map<Class<?>, RecipeVarSerializer<?>> serializers) {
+		this.serializers = serializers;
+	}
+
+	@Override
+	protected RecipeVarSerializer<?> computeValue(Class<?> type) {
+		return resolve(serializers::get, type);
+	}
+
+	/**
+	 * Finds the serializer for the most specific registered type, checking the class itself, then its superclasses,
+	 * then its interfaces breadth first
+	 */
+	static RecipeVarSerializer<?> resolve(Function<Class<?>, RecipeVarSerializer<?>> lookup, Class<?> type) {
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			RecipeVarSerializer<?> serializer = lookup.apply(c);
+			if (serializer != null) {
+				return serializer;
+			}
+		}
+		Set<Class<?>> visited = new HashSet<>();
+		Deque<Class<?>> queue = new ArrayDeque<>();
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			for (Class<?> i : c.getInterfaces()) {
+				queue.add(i);
+			}
+		}
+		while (!queue.isEmpty()) {
+			Class<?> i = queue.poll();
+			if (visited.add(i)) {
+				RecipeVarSerializer<?> serializer = lookup.apply(i);
+				if (serializer != null) {
+					return serializer;
+				}
+				for (Class<?> parent : i.getInterfaces()) {
+					queue.add(parent);
+				}
+			}
+		}
+		return null;
+	}
+}
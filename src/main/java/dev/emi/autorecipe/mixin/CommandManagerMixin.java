@@ -0,0 +1,26 @@
+package dev.emi.autorecipe.mixin;
+
+import com.mojang.brigadier.CommandDispatcher;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import dev.emi.autorecipe.AutoRecipeCommands;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+
+@Mixin(CommandManager.class)
+public class CommandManagerMixin {
+	@Shadow
+	@Final
+	private CommandDispatcher<ServerCommandSource> dispatcher;
+
+	@Inject(at = @At("RETURN"), method = "<init>")
+	private void registerCommands(CommandManager.RegistrationEnvironment environment, CallbackInfo info) {
+		AutoRecipeCommands.register(dispatcher);
+	}
+}
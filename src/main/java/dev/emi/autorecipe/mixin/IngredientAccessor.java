@@ -0,0 +1,21 @@
+package dev.emi.autorecipe.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+
+/**
+ * Reads an ingredient's resolved stacks on either side, as {@code getMatchingStacksClient} is client only
+ */
+@Mixin(Ingredient.class)
+public interface IngredientAccessor {
+
+	@Invoker("cacheMatchingStacks")
+	void autorecipe$cacheMatchingStacks();
+
+	@Accessor("matchingStacks")
+	ItemStack[] autorecipe$getMatchingStacks();
+}
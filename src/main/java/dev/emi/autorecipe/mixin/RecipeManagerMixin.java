@@ -0,0 +1,43 @@
+package dev.emi.autorecipe.mixin;
+
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import dev.emi.autorecipe.AsyncRecipeDecoding;
+import dev.emi.autorecipe.AutoRecipeReloads;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.profiler.Profiler;
+
+@Mixin(RecipeManager.class)
+public class RecipeManagerMixin {
+
+	@Inject(at = @At("HEAD"), method = "apply(Ljava/util/Map;Lnet/minecraft/resource/ResourceManager;Lnet/minecraft/util/profiler/Profiler;)V")
+	private void beginReload(Map<Identifier, JsonElement> map, ResourceManager resourceManager, Profiler profiler, CallbackInfo info) {
+		AutoRecipeReloads.begin();
+	}
+
+	@Inject(at = @At("RETURN"), method = "apply(Ljava/util/Map;Lnet/minecraft/resource/ResourceManager;Lnet/minecraft/util/profiler/Profiler;)V")
+	private void endReload(Map<Identifier, JsonElement> map, ResourceManager resourceManager, Profiler profiler, CallbackInfo info) {
+		AutoRecipeReloads.recipesChanged((RecipeManager) (Object) this);
+		AutoRecipeReloads.end();
+	}
+
+	@Inject(at = @At("HEAD"), method = "setRecipes")
+	private void awaitRecipes(Iterable<Recipe<?>> recipes, CallbackInfo info) {
+		AsyncRecipeDecoding.await(recipes);
+	}
+
+	@Inject(at = @At("RETURN"), method = "setRecipes")
+	private void setRecipes(Iterable<Recipe<?>> recipes, CallbackInfo info) {
+		AutoRecipeReloads.recipesChanged((RecipeManager) (Object) this);
+	}
+}
@@ -0,0 +1,70 @@
+package dev.emi.autorecipe.mixin;
+
+import java.util.List;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import dev.emi.autorecipe.AutoRecipeSyncPackets;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.s2c.play.SynchronizeRecipesS2CPacket;
+import net.minecraft.recipe.Recipe;
+
+@Mixin(SynchronizeRecipesS2CPacket.class)
+public class SynchronizeRecipesS2CPacketMixin {
+	@Shadow
+	private List<Recipe<?>> recipes;
+
+	@Inject(at = @At("HEAD"), method = "read")
+	private void beginRead(PacketByteBuf buf, CallbackInfo info) {
+		AutoRecipeSyncPackets.beginRead(buf);
+	}
+
+	@Redirect(method = "read", at = @At(value = "INVOKE",
+		target = "Lnet/minecraft/network/packet/s2c/play/SynchronizeRecipesS2CPacket;readRecipe(Lnet/minecraft/network/PacketByteBuf;)Lnet/minecraft/recipe/Recipe;"))
+	private Recipe<?> readRecipe(PacketByteBuf buf) {
+		boolean read = false;
+		try {
+			Recipe<?> recipe = SynchronizeRecipesS2CPacket.readRecipe(buf);
+			read = true;
+			return recipe;
+		} finally {
+			if (!read) {
+				AutoRecipeSyncPackets.end();
+			}
+		}
+	}
+
+	@Inject(at = @At("RETURN"), method = "read")
+	private void endRead(PacketByteBuf buf, CallbackInfo info) {
+		AutoRecipeSyncPackets.end();
+	}
+
+	@Inject(at = @At("HEAD"), method = "write")
+	private void beginWrite(PacketByteBuf buf, CallbackInfo info) {
+		AutoRecipeSyncPackets.beginWrite(buf, recipes);
+	}
+
+	@Redirect(method = "write", at = @At(value = "INVOKE",
+		target = "Lnet/minecraft/network/packet/s2c/play/SynchronizeRecipesS2CPacket;writeRecipe(Lnet/minecraft/recipe/Recipe;Lnet/minecraft/network/PacketByteBuf;)V"))
+	private void writeRecipe(Recipe<?> recipe, PacketByteBuf buf) {
+		boolean written = false;
+		try {
+			SynchronizeRecipesS2CPacket.writeRecipe(recipe, buf);
+			written = true;
+		} finally {
+			if (!written) {
+				AutoRecipeSyncPackets.end();
+			}
+		}
+	}
+
+	@Inject(at = @At("RETURN"), method = "write")
+	private void endWrite(PacketByteBuf buf, CallbackInfo info) {
+		AutoRecipeSyncPackets.end();
+	}
+}
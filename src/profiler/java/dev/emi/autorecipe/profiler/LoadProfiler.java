@@ -0,0 +1,292 @@
+package dev.emi.autorecipe.profiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.gson.JsonObject;
+
+import dev.emi.autorecipe.AutoRecipeMetrics;
+import dev.emi.autorecipe.AutoRecipeMetrics.Operation;
+import dev.emi.autorecipe.AutoRecipeMetrics.Stats;
+import dev.emi.autorecipe.AutoRecipeRegistry;
+import dev.emi.autorecipe.AutoRecipeSerializer;
+import dev.emi.autorecipe.AutoSerializedRecipe;
+import dev.emi.autorecipe.RecipeCache;
+import dev.emi.autorecipe.RecipeLoader;
+import io.netty.buffer.Unpooled;
+import net.minecraft.Bootstrap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeSerializer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.JsonHelper;
+import net.minecraft.util.registry.Registry;
+
+/**
+ * Replays a datapack's recipes through their auto serializers without starting a server, reporting json read,
+ * packet write and packet read throughput, encoded size, allocation and the slowest files. Run with
+ * {@code ./gradlew profileRecipes --args="<pack> <type>=<recipe class>... [--passes=N] [--slowest=N] [--fields]"},
+ * where the pack is a datapack directory or zip and each recipe class is registered under its type like a mod would.
+ * Recipe classes outside this project are added with {@code -PprofilerClasspath=<jars or directories>}. Tags are not
+ * loaded, so recipes referencing them cannot be decoded and are counted separately rather than as failures.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class LoadProfiler {
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+	private final List<Entry> entries = new ArrayList<>();
+	private final Map<Identifier, Exception> errors = new LinkedHashMap<>();
+	private final PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+	private int skipped;
+	private int tagged;
+
+	public static void main(String[] args) throws Exception {
+		Path pack = null;
+		int passes = 5;
+		int slowest = 10;
+		boolean fields = false;
+		Map<Identifier, String> classes = new LinkedHashMap<>();
+		for (String arg : args) {
+			if (arg.startsWith("--passes=")) {
+				passes = Integer.parseInt(arg.substring("--passes=".length()));
+			} else if (arg.startsWith("--slowest=")) {
+				slowest = Integer.parseInt(arg.substring("--slowest=".length()));
+			} else if (arg.equals("--fields")) {
+				fields = true;
+			} else if (pack == null) {
+				pack = Paths.get(arg);
+			} else {
+				int split = arg.indexOf('=');
+				if (split == -1) {
+					throw new IllegalArgumentException("Expected <type>=<recipe class>, got " + arg);
+				}
+				classes.put(new Identifier(arg.substring(0, split)), arg.substring(split + 1));
+			}
+		}
+		if (pack == null || classes.isEmpty()) {
+			System.err.println("Usage: <pack> <type>=<recipe class>... [--passes=N] [--slowest=N] [--fields]");
+			System.exit(1);
+		}
+		Bootstrap.initialize();
+		for (Map.Entry<Identifier, String> entry : classes.entrySet()) {
+			AutoRecipeRegistry.registerRecipeSerializer(entry.getKey(), (Function) constructor(Class.forName(entry.getValue())));
+		}
+		LoadProfiler profiler = new LoadProfiler();
+		if (Files.isDirectory(pack)) {
+			profiler.load(pack);
+		} else {
+			try (FileSystem fs = FileSystems.newFileSystem(pack, (ClassLoader) null)) {
+				profiler.load(fs.getPath("/"));
+			}
+		}
+		// Earlier passes warm up the jit, only the last one is reported
+		for (int i = 0; i < passes; i++) {
+			profiler.run();
+		}
+		profiler.report(slowest);
+		if (fields) {
+			// Metrics add overhead to every call, so the per field breakdown is taken from a separate pass
+			AutoRecipeMetrics.setEnabled(true);
+			AutoRecipeMetrics.reset();
+			profiler.run();
+			AutoRecipeMetrics.setEnabled(false);
+			reportFields();
+		}
+	}
+
+	private static Function<Identifier, Recipe<?>> constructor(Class<?> clazz) throws ReflectiveOperationException {
+		if (!Recipe.class.isAssignableFrom(clazz)) {
+			throw new IllegalArgumentException(clazz.getName() + " is not a recipe");
+		}
+		try {
+			Constructor<?> c = clazz.getConstructor(Identifier.class);
+			return id -> newInstance(c, id);
+		} catch (NoSuchMethodException e) {
+			Constructor<?> c = clazz.getConstructor();
+			return id -> newInstance(c);
+		}
+	}
+
+	private static Recipe<?> newInstance(Constructor<?> c, Object... args) {
+		try {
+			return (Recipe<?>) c.newInstance(args);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Cannot create recipe " + c.getDeclaringClass().getName(), e);
+		}
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (threads.isThreadAllocatedMemorySupported()) {
+				threads.setThreadAllocatedMemoryEnabled(true);
+				return threads;
+			}
+		}
+		return null;
+	}
+
+	private static long allocated() {
+		return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Parses every recipe file of an auto serializer type up front, so that only the serializers are measured
+	 */
+	private void load(Path root) throws IOException {
+		for (Map.Entry<Identifier, Path> file : RecipeLoader.findRecipes(root).entrySet()) {
+			JsonObject json;
+			try (Reader reader = Files.newBufferedReader(file.getValue(), StandardCharsets.UTF_8)) {
+				json = JsonHelper.deserialize(reader);
+			} catch (Exception e) {
+				errors.put(file.getKey(), e);
+				continue;
+			}
+			RecipeSerializer<?> serializer;
+			try {
+				serializer = Registry.RECIPE_SERIALIZER.getOrEmpty(new Identifier(JsonHelper.getString(json, "type"))).orElse(null);
+			} catch (Exception e) {
+				errors.put(file.getKey(), e);
+				continue;
+			}
+			if (serializer instanceof AutoRecipeSerializer && RecipeCache.referencesTag(json)) {
+				tagged++;
+			} else if (serializer instanceof AutoRecipeSerializer) {
+				entries.add(new Entry(file.getKey(), file.getValue(), json, (AutoRecipeSerializer) serializer));
+			} else {
+				skipped++;
+			}
+		}
+	}
+
+	private void run() {
+		for (Entry entry : entries) {
+			entry.run(buf, errors);
+		}
+	}
+
+	private void report(int slowest) {
+		int count = 0;
+		long readNanos = 0, readBytes = 0, writeNanos = 0, writeBytes = 0, packetNanos = 0, packetBytes = 0, encoded = 0;
+		for (Entry entry : entries) {
+			if (entry.failed) {
+				continue;
+			}
+			count++;
+			readNanos += entry.readNanos;
+			readBytes += entry.readAllocated;
+			writeNanos += entry.writeNanos;
+			writeBytes += entry.writeAllocated;
+			packetNanos += entry.packetNanos;
+			packetBytes += entry.packetAllocated;
+			encoded += entry.encoded;
+		}
+		System.out.println(count + " recipes profiled, " + skipped + " of other types skipped, " + tagged
+			+ " referencing tags skipped, " + errors.size() + " failed");
+		if (count > 0) {
+			System.out.println(String.format("  json read:    %,12.0f recipes/s %,10d allocated bytes/recipe",
+				count * 1e9 / readNanos, readBytes / count));
+			System.out.println(String.format("  packet write: %,12.0f recipes/s %,10d allocated bytes/recipe %,8d encoded bytes/recipe",
+				count * 1e9 / writeNanos, writeBytes / count, encoded / count));
+			System.out.println(String.format("  packet read:  %,12.0f recipes/s %,10d allocated bytes/recipe",
+				count * 1e9 / packetNanos, packetBytes / count));
+			if (THREADS == null) {
+				System.out.println("  allocation is not measurable on this jvm");
+			}
+		}
+		List<Entry> sorted = new ArrayList<>(entries);
+		sorted.removeIf(e -> e.failed);
+		sorted.sort(Comparator.comparingLong(Entry::totalNanos).reversed());
+		if (!sorted.isEmpty()) {
+			System.out.println("Slowest files:");
+		}
+		for (Entry entry : sorted.subList(0, Math.min(slowest, sorted.size()))) {
+			System.out.println(String.format("  %,10dus %s (%s)", entry.totalNanos() / 1000, entry.file, entry.id));
+		}
+		errors.forEach((id, e) -> System.out.println("Failed " + id + ": " + e));
+	}
+
+	private static void reportFields() {
+		System.out.println("Fields by json read time:");
+		List<Map.Entry<String, Map<Operation, Stats>>> fields = new ArrayList<>(AutoRecipeMetrics.getFieldStats().entrySet());
+		fields.sort(Comparator.comparingLong(e -> -e.getValue().get(Operation.JSON_READ).getTotalNanos()));
+		for (Map.Entry<String, Map<Operation, Stats>> field : fields) {
+			System.out.println("  " + field.getKey());
+			field.getValue().forEach((operation, stats) -> System.out.println("    " + operation + ": " + stats));
+		}
+	}
+
+	private static class Entry {
+		private final Identifier id;
+		private final Path file;
+		private final JsonObject json;
+		private final AutoRecipeSerializer serializer;
+		private boolean failed;
+		private long readNanos, readAllocated, writeNanos, writeAllocated, packetNanos, packetAllocated;
+		private int encoded;
+
+		private Entry(Identifier id, Path file, JsonObject json, AutoRecipeSerializer serializer) {
+			this.id = id;
+			this.file = file;
+			this.json = json;
+			this.serializer = serializer;
+		}
+
+		private long totalNanos() {
+			return readNanos + writeNanos + packetNanos;
+		}
+
+		private void run(PacketByteBuf buf, Map<Identifier, Exception> errors) {
+			if (failed) {
+				return;
+			}
+			try {
+				long alloc = allocated();
+				long start = System.nanoTime();
+				Recipe<?> recipe = load(serializer.read(id, json));
+				readNanos = System.nanoTime() - start;
+				readAllocated = allocated() - alloc;
+
+				buf.clear();
+				alloc = allocated();
+				start = System.nanoTime();
+				serializer.write(buf, recipe);
+				writeNanos = System.nanoTime() - start;
+				writeAllocated = allocated() - alloc;
+				encoded = buf.readableBytes();
+
+				alloc = allocated();
+				start = System.nanoTime();
+				load(serializer.read(id, buf));
+				packetNanos = System.nanoTime() - start;
+				packetAllocated = allocated() - alloc;
+			} catch (Exception e) {
+				failed = true;
+				errors.put(id, e);
+			}
+		}
+
+		/**
+		 * Lazy recipes are loaded immediately so their deferred work is measured
+		 */
+		private static Recipe<?> load(Recipe<?> recipe) {
+			if (recipe instanceof AutoSerializedRecipe) {
+				((AutoSerializedRecipe) recipe).ensureLoaded();
+			}
+			return recipe;
+		}
+	}
+}
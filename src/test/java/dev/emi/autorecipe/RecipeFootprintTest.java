@@ -0,0 +1,98 @@
+package dev.emi.autorecipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+public class RecipeFootprintTest {
+	private static final Identifier ID = new Identifier("autorecipe", "footprint_test");
+	private static AutoRecipeSerializer<PrimitiveRecipe> serializer;
+
+	@BeforeClass
+	@SuppressWarnings("unchecked")
+	public static void register() {
+		Bootstrap.initialize();
+		AutoRecipeRegistry.registerRecipeSerializer(ID, PrimitiveRecipe::new);
+		serializer = (AutoRecipeSerializer<PrimitiveRecipe>) AutoRecipeRegistry.getRecipeSerializer(PrimitiveRecipe.class);
+	}
+
+	@Test
+	public void primitiveFieldsAreReadThroughTheirAccessors() {
+		PrimitiveRecipe recipe = read("a", 200);
+		for (RecipeField field : serializer.getFields()) {
+			if (field.field.getName().equals("time")) {
+				assertEquals(200, field.get(recipe));
+				field.set(recipe, 100);
+				assertEquals(100, recipe.time);
+			}
+		}
+	}
+
+	@Test
+	public void measuresRecipesWithPrimitiveFields() {
+		List<RecipeFootprint.TypeFootprint> types = RecipeFootprint.measure(Arrays.asList(read("a", 200), read("b", 300)));
+		assertEquals(1, types.size());
+		RecipeFootprint.TypeFootprint type = types.get(0);
+		assertEquals(ID, type.getId());
+		assertEquals(2, type.getRecipes());
+		assertTrue(type.getRecipeBytes() > 0);
+		for (RecipeFootprint.FieldFootprint field : type.getFields()) {
+			if (field.getName().equals("group")) {
+				assertEquals(2, field.getInstances());
+			} else {
+				// Primitives are stored in the recipe and counted with it
+				assertEquals(field.getName(), 0, field.getBytes());
+			}
+		}
+	}
+
+	private static PrimitiveRecipe read(String group, int time) {
+		JsonObject json = new JsonParser().parse("{\"group\": \"" + group + "\", \"time\": " + time
+			+ ", \"energy\": 40000, \"chance\": 0.25, \"experience\": 1.5, \"flag\": true}").getAsJsonObject();
+		return serializer.read(new Identifier("autorecipe", group), json);
+	}
+
+	public static class PrimitiveRecipe extends AutoSerializedRecipe<Inventory> {
+		@RecipeVar("group")
+		public String group;
+		@RecipeVar("time")
+		public int time;
+		@RecipeVar("energy")
+		public long energy;
+		@RecipeVar("chance")
+		public float chance;
+		@RecipeVar("experience")
+		public double experience;
+		@RecipeVar("flag")
+		public boolean flag;
+
+		@Override
+		public boolean matches(Inventory inv, World world) {
+			return false;
+		}
+
+		@Override
+		public ItemStack craft(Inventory inv) {
+			return ItemStack.EMPTY;
+		}
+
+		@Override
+		public ItemStack getOutput() {
+			return ItemStack.EMPTY;
+		}
+	}
+}